@@ -2,7 +2,9 @@ from flask import Flask, request, jsonify, send_file
 import torch
 import numpy as np
 from scipy.spatial.distance import cdist
+import hashlib
 import boto3
+from botocore.exceptions import ClientError
 from PIL import Image
 
 app = Flask(__name__)
@@ -106,6 +108,27 @@ def extract_features(images, model):
 # Extract features from all loaded photo images
 photo_features = extract_features(photo_images, model)
 
+# Versions of what matches are computed against. Clients cache results under
+# them, so they change whenever a photo is added, replaced or removed, or the
+# weights change.
+def compute_gallery_version(bucket, folder_name):
+    digest = hashlib.sha256()
+    response = s3.list_objects_v2(Bucket=bucket, Prefix=folder_name)
+    for item in sorted(response.get('Contents', []), key=lambda item: item['Key']):
+        digest.update(f"{item['Key']}:{item['ETag']}\n".encode())
+    return digest.hexdigest()[:16]
+
+def compute_model_version(model_file):
+    with open(model_file, 'rb') as f:
+        return hashlib.sha256(f.read()).hexdigest()[:16]
+
+gallery_version = compute_gallery_version(bucket_name, 'Photos/')
+model_version = compute_model_version('cite_model.pth')
+
+@app.route('/version', methods=['GET'])
+def get_version():
+    return jsonify({'gallery_version': gallery_version, 'model_version': model_version})
+
 @app.route('/upload_sketch', methods=['POST'])
 def upload_sketch():
     # Handle sketch upload
@@ -130,16 +153,29 @@ def upload_sketch():
     # Calculate distances between the sketch and all photos
     distance_matrix = cdist(sketch_features_np, photo_features.detach().numpy(), metric='euclidean')  # Detach photo features as well
 
-    # Find the closest matching photo index
-    most_similar_photo_index = np.argmin(distance_matrix)
+    # Rank the photos by distance; k and min_similarity are optional form fields
+    k = min(max(request.form.get('k', default=1, type=int), 1), len(photos))
+    min_similarity = request.form.get('min_similarity', default=0.0, type=float)
+    distances = distance_matrix[0]
 
-    # Calculate similarity percentage
-    max_distance = np.max(distance_matrix)
-    similarity_score = 100 * (1 - distance_matrix[0][most_similar_photo_index] / max_distance)
+    # Calculate similarity percentages
+    max_distance = np.max(distances)
+    similarities = 100 * (1 - distances / max_distance)
 
+    # Only the k closest photos need sorting, not the whole gallery
+    closest = np.argpartition(distances, k - 1)[:k]
+    closest = closest[np.argsort(distances[closest])]
+    matches = [{'image_id': photos[i], 'similarity': float(similarities[i])}
+               for i in closest if similarities[i] >= min_similarity]
+
+    # matched_image_id and similarity are the best match, as before
+    most_similar_photo_index = closest[0]
     return jsonify({
         'matched_image_id': photos[most_similar_photo_index],
-        'similarity': similarity_score
+        'similarity': float(similarities[most_similar_photo_index]),
+        'matches': matches,
+        'gallery_version': gallery_version,
+        'model_version': model_version
     })
 
 
@@ -148,17 +184,24 @@ from io import BytesIO
 @app.route('/<image_id>', methods=['GET'])
 def get_image(image_id):
     try:
+        # Clients cache photos; pass their ETag on so S3 answers 304 when the photo is unchanged
+        etag = request.headers.get('If-None-Match')
+        conditional = {'IfNoneMatch': etag} if etag else {}
+        try:
+            photo = s3.get_object(Bucket=bucket_name, Key=f'Photos/{image_id}', **conditional)
+        except ClientError as e:
+            if e.response.get('ResponseMetadata', {}).get('HTTPStatusCode') == 304:
+                return '', 304, {'ETag': etag}
+            raise
+
         # Create a BytesIO stream to hold the image data
-        image_stream = BytesIO()
-        
-        # Download the image from S3 directly into the stream
-        s3.download_fileobj(bucket_name, f'Photos/{image_id}', image_stream)
-        
-        # Reset the stream's position to the beginning
-        image_stream.seek(0)
-        
-        # Return the image as a file-like object
-        return send_file(image_stream, mimetype='image/jpeg')
+        image_stream = BytesIO(photo['Body'].read())
+
+        # Return the image as a file-like object, with the validators the client revalidates against
+        response = send_file(image_stream, mimetype='image/jpeg')
+        response.headers['ETag'] = photo['ETag']
+        response.last_modified = photo['LastModified']
+        return response
     except Exception as e:
         print(f"Error fetching the image: {e}")
         return jsonify({"error": "Image not found"}), 404
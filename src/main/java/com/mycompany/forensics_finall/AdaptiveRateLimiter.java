@@ -0,0 +1,87 @@
+package com.mycompany.forensics_finall;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces calls out to stay under a service's transactions-per-second quota
+ * when the quota is only known roughly, or is shared with other clients.
+ *
+ * The rate starts at {@code initialRate}. Every throttled call cuts it by 30%,
+ * down to {@code minRate}; throttles reported within one interval of the last
+ * cut were sent at the old rate and do not cut it again. Every successful call
+ * raises it by a five-hundredth of {@code maxRate}, so it creeps back up and
+ * keeps probing for the ceiling without overshooting the quota by much.
+ * Thread-safe.
+ */
+public class AdaptiveRateLimiter {
+
+    private static final double DECREASE = 0.7;
+    private static final double INCREASE = 0.002;
+
+    private final double minRate;
+    private final double maxRate;
+    private double rate;
+    private long nextPermit;
+    private long lastCut;
+    private long throttles;
+    private long permits;
+
+    public AdaptiveRateLimiter(double initialRate, double minRate, double maxRate) {
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.rate = Math.max(minRate, Math.min(maxRate, initialRate));
+        this.nextPermit = System.nanoTime();
+        this.lastCut = nextPermit - TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /** Wait until a call may be made at the current rate. */
+    public void acquire() throws InterruptedException {
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long permit = Math.max(now, nextPermit);
+            nextPermit = permit + interval();
+            permits++;
+            wait = permit - now;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    public synchronized void onSuccess() {
+        rate = Math.min(maxRate, rate + maxRate * INCREASE);
+    }
+
+    /** The service refused a call for exceeding its quota. */
+    public synchronized void onThrottle() {
+        throttles++;
+        long now = System.nanoTime();
+        if (now - lastCut < interval()) {
+            return;
+        }
+        lastCut = now;
+        rate = Math.max(minRate, rate * DECREASE);
+        // Let the service's window drain before the next call
+        nextPermit = Math.max(nextPermit, now + interval());
+    }
+
+    private long interval() {
+        return (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+    }
+
+    /** Calls allowed per second right now. */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    public synchronized long getThrottles() {
+        return throttles;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%.1f TPS (%.1f-%.1f), %d permits, %d throttled", rate, minRate, maxRate, permits,
+                throttles);
+    }
+}
@@ -0,0 +1,144 @@
+package com.mycompany.forensics_finall;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Matches through a sketch matching API ({@code Forensics/forensicsapi.py})
+ * with a {@link MatchApiClient}. The same engine serves the shared server
+ * ({@code api}) and an instance running on this machine ({@code local}).
+ *
+ * With a {@link SketchPreprocessor} the sketch is shrunk to the model's input
+ * on the calling thread before it is sent.
+ */
+public class ApiMatchEngine implements MatchEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(ApiMatchEngine.class.getName());
+
+    private final String name;
+    private final MatchApiClient client;
+    private final SketchPreprocessor preprocessor;
+
+    /**
+     * @param preprocessor shrinks the sketch before upload, or null to send it as is
+     */
+    public ApiMatchEngine(String name, MatchApiClient client, SketchPreprocessor preprocessor) {
+        this.name = name;
+        this.client = client;
+        this.preprocessor = preprocessor;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public MatchApiClient getClient() {
+        return client;
+    }
+
+    @Override
+    public String backend() {
+        return "api " + client.getBaseUri() + (preprocessor != null ? " preprocessed" : "");
+    }
+
+    @Override
+    public CompletableFuture<String> galleryVersion() {
+        return client.galleryVersion();
+    }
+
+    @Override
+    public CompletableFuture<Answer> match(MatchSketch sketch, int topK, double minSimilarity,
+            DoubleConsumer progress) {
+        byte[] payload = null;
+        String fileName = sketch.getName();
+        String summary = null;
+        if (preprocessor != null) {
+            try {
+                SketchPreprocessor.Result prepared = sketch.preprocess(preprocessor);
+                payload = prepared.getPng();
+                // The payload is a PNG now, whatever the sketch was saved as
+                fileName = fileName.replaceFirst("\\.[^.]*$", "") + ".png";
+                summary = prepared.toString();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not preprocess " + sketch + ", sending it as is", e);
+            }
+        }
+        if (payload == null) {
+            try {
+                payload = sketch.getEncoded();
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        if (summary == null) {
+            summary = String.format("%.1f KB sent", payload.length / 1024.0);
+        }
+
+        String sent = summary;
+        long size = payload.length;
+        long start = System.nanoTime();
+        AtomicLong uploaded = new AtomicLong();
+        CompletableFuture<JSONObject> request = client.match(fileName, payload, topK, minSimilarity, fraction -> {
+            if (fraction >= 1) {
+                uploaded.compareAndSet(0, System.nanoTime());
+            }
+            progress.accept(fraction);
+        });
+        CompletableFuture<Answer> answer = request.thenApply(response -> {
+            long end = System.nanoTime();
+            String report = sent + String.format(", uploaded in %d ms, answered in %d ms",
+                    TimeUnit.NANOSECONDS.toMillis((uploaded.get() == 0 ? end : uploaded.get()) - start),
+                    TimeUnit.NANOSECONDS.toMillis(end - start));
+            return new Answer(this, ranked(response, topK, minSimilarity), MatchApiClient.version(response),
+                    report, size);
+        });
+        // Cancelling the match aborts the upload under it
+        answer.whenComplete((done, error) -> {
+            if (answer.isCancelled()) {
+                request.cancel(true);
+            }
+        });
+        return answer;
+    }
+
+    @Override
+    public URI photoUri(String imageId) {
+        return client.photoUri(imageId);
+    }
+
+    // The response's ranked matches, or just the best one from servers that predate them
+    static List<MatchResult> ranked(JSONObject response, int topK, double minSimilarity) {
+        List<MatchResult> results = new ArrayList<>();
+        JSONArray matches = response.optJSONArray("matches");
+        if (matches == null) {
+            matches = new JSONArray().put(new JSONObject()
+                    .put("image_id", response.getString("matched_image_id"))
+                    .put("similarity", response.getDouble("similarity")));
+        }
+        for (int i = 0; i < matches.length() && results.size() < topK; i++) {
+            JSONObject match = matches.getJSONObject(i);
+            double similarity = match.getDouble("similarity");
+            if (similarity >= minSimilarity) {
+                // Remove 'Photos/' prefix from the matched image ID
+                results.add(new MatchResult(match.getString("image_id").replace("Photos/", ""), similarity));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + client.getBaseUri() + ")";
+    }
+}
@@ -0,0 +1,160 @@
+package com.mycompany.forensics_finall;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
+import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.RekognitionClientBuilder;
+import software.amazon.awssdk.services.rekognition.model.DescribeCollectionRequest;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+/**
+ * The application's AWS clients, the bucket and the collection they work on.
+ *
+ * Building an SDK client loads its service model, resolves credentials and
+ * endpoints and starts an HTTP connection pool, so the clients are built once
+ * and kept for the life of the application; they are thread-safe and every
+ * match and indexing run shares their pooled, already handshaken connections.
+ * Matches go through the non-blocking Rekognition client, so they can be
+ * aborted.
+ * {@link #warmUp()} does all of that in the background, from the splash
+ * screen, so the first match does not pay for it either.
+ */
+public final class AwsClients {
+
+    private static final Logger LOGGER = Logger.getLogger(AwsClients.class.getName());
+
+    public static final Region CLIENT_REGION = Region.US_EAST_2;
+    public static final String BUCKET_NAME = "forensics-bucket-project";
+    public static final String COLLECTION_ID = "Records";
+
+    // Your AWS credentials
+    private static final String AWS_ACCESS_KEY_ID = "xyz";
+    private static final String AWS_SECRET_ACCESS_KEY = "zyx";
+
+    // -Dforensics.aws.warmUp=false leaves the clients to be built on first use
+    private static final boolean WARM_UP = Boolean.parseBoolean(System.getProperty("forensics.aws.warmUp", "true"));
+
+    private static final AwsClients SHARED = new AwsClients();
+
+    private S3Client s3;
+    private RekognitionAsyncClient rekognitionAsync;
+    private S3Presigner presigner;
+    private CompletableFuture<Void> warmUp;
+
+    private AwsClients() {
+    }
+
+    public static AwsClients shared() {
+        return SHARED;
+    }
+
+    public synchronized S3Client s3() {
+        if (s3 == null) {
+            s3 = S3Client.builder()
+                    .region(CLIENT_REGION)
+                    .credentialsProvider(credentials())
+                    .build();
+        }
+        return s3;
+    }
+
+    /**
+     * Rekognition over non-blocking connections. Cancelling the future of a
+     * call aborts the request, which the blocking client cannot do, so
+     * matches that are given up on stop loading the service.
+     */
+    public synchronized RekognitionAsyncClient rekognitionAsync() {
+        if (rekognitionAsync == null) {
+            rekognitionAsync = RekognitionAsyncClient.builder()
+                    .region(CLIENT_REGION)
+                    .credentialsProvider(credentials())
+                    .build();
+        }
+        return rekognitionAsync;
+    }
+
+    /** For a client configured differently from the shared one, e.g. retrying nothing itself. */
+    static RekognitionClientBuilder rekognitionBuilder() {
+        return RekognitionClient.builder()
+                .region(CLIENT_REGION)
+                .credentialsProvider(credentials());
+    }
+
+    /** Signs URLs for objects in the bucket locally, without calling AWS. */
+    public synchronized S3Presigner presigner() {
+        if (presigner == null) {
+            presigner = S3Presigner.builder()
+                    .region(CLIENT_REGION)
+                    .credentialsProvider(credentials())
+                    .build();
+        }
+        return presigner;
+    }
+
+    /**
+     * Build both clients and open a connection to the bucket and to
+     * Rekognition on a daemon thread, unless warm-up is turned off. Only the
+     * first call does anything; failures are logged, and the clients are then
+     * built again on first use.
+     */
+    public synchronized CompletableFuture<Void> warmUp() {
+        if (warmUp == null) {
+            if (!WARM_UP) {
+                warmUp = CompletableFuture.completedFuture(null);
+                return warmUp;
+            }
+            warmUp = new CompletableFuture<>();
+            Thread thread = new Thread(() -> {
+                long start = System.nanoTime();
+                try {
+                    // Cheap calls against what matches use, so the connections pooled are the right ones
+                    call(() -> s3().headBucket(HeadBucketRequest.builder().bucket(BUCKET_NAME).build()));
+                    call(() -> rekognitionAsync().describeCollection(
+                            DescribeCollectionRequest.builder().collectionId(COLLECTION_ID).build()).join());
+                    LOGGER.info("AWS clients warmed up in "
+                            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Could not set up the AWS clients", e);
+                } finally {
+                    warmUp.complete(null);
+                }
+            }, "aws-warm-up");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return warmUp;
+    }
+
+    // A refused call has still bootstrapped the client and opened its connection
+    private static void call(Runnable request) {
+        try {
+            request.run();
+        } catch (SdkServiceException e) {
+            LOGGER.log(Level.FINE, "Warm-up call refused", e);
+        } catch (CompletionException e) {
+            if (!(e.getCause() instanceof SdkServiceException)) {
+                throw e;
+            }
+            LOGGER.log(Level.FINE, "Warm-up call refused", e.getCause());
+        }
+    }
+
+    private static StaticCredentialsProvider credentials() {
+        return StaticCredentialsProvider.create(AwsBasicCredentials.create(AWS_ACCESS_KEY_ID, AWS_SECRET_ACCESS_KEY));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AWS clients for " + CLIENT_REGION.id() + (s3 != null || rekognitionAsync != null ? ", built" : "");
+    }
+}
@@ -0,0 +1,293 @@
+package com.mycompany.forensics_finall;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.rekognition.model.DescribeCollectionRequest;
+import software.amazon.awssdk.services.rekognition.model.FaceMatch;
+import software.amazon.awssdk.services.rekognition.model.Image;
+import software.amazon.awssdk.services.rekognition.model.S3Object;
+import software.amazon.awssdk.services.rekognition.model.SearchFacesByImageRequest;
+import software.amazon.awssdk.services.rekognition.model.SearchFacesByImageResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+
+/**
+ * Matches against the faces indexed in a Rekognition collection with
+ * {@code SearchFacesByImage}. The gallery version is the collection's face
+ * model and face count, so indexing or deleting a face invalidates cached
+ * results.
+ *
+ * A sketch within Rekognition's 5 MB limit for image bytes is sent inline
+ * with the search, and archived to S3 alongside it rather than before it.
+ * {@code -Dforensics.rekognition.inline=false}, or a larger sketch, falls
+ * back to uploading it to S3 first and searching by reference.
+ * {@code -Dforensics.rekognition.archive=false} skips the archive copy of
+ * inline sketches. Either way the object is named after a hash of the bytes
+ * sent, under {@code sketches/}.
+ *
+ * Matched photos are downloaded through presigned URLs, so the bucket need not
+ * be public.
+ *
+ * Sketches are prepared, and uploaded when they have to be, on a pool of
+ * daemon threads; searches go through the application's long-lived,
+ * non-blocking Rekognition client in {@link AwsClients}. Cancelling a match
+ * aborts its search.
+ */
+public class AwsMatchEngine implements MatchEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(AwsMatchEngine.class.getName());
+
+    // Rekognition's own similarity threshold; matches below it are never returned
+    private static final float FACE_MATCH_THRESHOLD =
+            Float.parseFloat(System.getProperty("forensics.rekognition.faceMatchThreshold", "70"));
+
+    // Largest image Rekognition takes as raw bytes rather than an S3 reference
+    static final int MAX_INLINE_BYTES = 5 * 1024 * 1024;
+    private static final boolean INLINE =
+            Boolean.parseBoolean(System.getProperty("forensics.rekognition.inline", "true"));
+    private static final boolean ARCHIVE =
+            Boolean.parseBoolean(System.getProperty("forensics.rekognition.archive", "true"));
+    // -Dforensics.rekognition.presignPhotos=false fetches photos from a public bucket unsigned
+    private static final boolean PRESIGN_PHOTOS =
+            Boolean.parseBoolean(System.getProperty("forensics.rekognition.presignPhotos", "true"));
+    // Sketches are uploaded and archived as sketches/<sha-256 of the bytes sent>.<extension>
+    private static final String SKETCH_FOLDER = "sketches/";
+    private static final Duration PRESIGNED_FOR = Duration.ofMinutes(15);
+    private static final long VERSION_TTL =
+            TimeUnit.SECONDS.toNanos(Long.getLong("forensics.rekognition.versionTtlSeconds", 60));
+
+    private final SketchPreprocessor preprocessor;
+    private final ExecutorService executor = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "rekognition-match");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile CompletableFuture<String> version;
+    private volatile long versionChecked;
+
+    /**
+     * @param preprocessor shrinks the sketch before upload, or null to upload it as is
+     */
+    public AwsMatchEngine(SketchPreprocessor preprocessor) {
+        this.preprocessor = preprocessor;
+    }
+
+    @Override
+    public String getName() {
+        return "aws";
+    }
+
+    @Override
+    public String backend() {
+        return "rekognition " + AwsClients.CLIENT_REGION.id() + "/" + AwsClients.COLLECTION_ID
+                + " threshold=" + FACE_MATCH_THRESHOLD
+                + (preprocessor != null ? " preprocessed" : "");
+    }
+
+    /**
+     * The collection's face model and face count, which change whenever faces
+     * are indexed or deleted or the collection moves to a new face model. The
+     * answer is reused for {@code forensics.rekognition.versionTtlSeconds}
+     * (default 60), so a match does not wait on DescribeCollection every time;
+     * a failed check is not reused, and fails the future.
+     */
+    @Override
+    public CompletableFuture<String> galleryVersion() {
+        CompletableFuture<String> known = version;
+        // Callers get copies, so one that gives up does not cancel the check for the others
+        if (known != null && System.nanoTime() - versionChecked < VERSION_TTL && !known.isCompletedExceptionally()) {
+            return known.copy();
+        }
+        known = AwsClients.shared().rekognitionAsync().describeCollection(
+                DescribeCollectionRequest.builder().collectionId(AwsClients.COLLECTION_ID).build())
+                .thenApply(collection -> collection.faceModelVersion() + "/" + collection.faceCount());
+        version = known;
+        versionChecked = System.nanoTime();
+        return known.copy();
+    }
+
+    @Override
+    public CompletableFuture<Answer> match(MatchSketch sketch, int topK, double minSimilarity,
+            DoubleConsumer progress) {
+        CompletableFuture<Answer> answer = new CompletableFuture<>();
+        executor.execute(() -> {
+            String uploadedFileName = sketch.getName();
+            String contentType = "image/jpeg";
+            byte[] payload = null;
+            String summary = null;
+            if (preprocessor != null) {
+                try {
+                    SketchPreprocessor.Result prepared = sketch.preprocess(preprocessor);
+                    payload = prepared.getPng();
+                    uploadedFileName = uploadedFileName.replaceFirst("\\.[^.]*$", "") + ".png";
+                    contentType = "image/png";
+                    summary = prepared.toString();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not preprocess " + sketch + ", uploading it as is", e);
+                }
+            }
+            if (payload == null) {
+                try {
+                    payload = sketch.getEncoded();
+                } catch (IOException e) {
+                    answer.completeExceptionally(e);
+                    return;
+                }
+                if (sketch.isComposition()) {
+                    contentType = "image/png";
+                }
+            }
+            if (summary == null) {
+                summary = String.format("%.1f KB sent", payload.length / 1024.0);
+            }
+
+            String key = sketchKey(uploadedFileName, payload);
+            long start = System.nanoTime();
+            Image image;
+            boolean inline = INLINE && payload.length <= MAX_INLINE_BYTES;
+            try {
+                if (inline) {
+                    // The search carries the sketch itself, so the archive copy need not hold it up
+                    if (ARCHIVE) {
+                        archive(key, contentType, payload);
+                    }
+                    image = Image.builder().bytes(SdkBytes.fromByteArray(payload)).build();
+                } else {
+                    upload(key, contentType, payload);
+                    image = Image.builder()
+                            .s3Object(S3Object.builder()
+                                    .bucket(AwsClients.BUCKET_NAME)
+                                    .name(key)
+                                    .build())
+                            .build();
+                }
+            } catch (RuntimeException e) {
+                answer.completeExceptionally(e);
+                return;
+            }
+            // Given up on while the sketch was being prepared or uploaded
+            if (answer.isDone()) {
+                return;
+            }
+            long uploaded = System.nanoTime();
+            progress.accept(1);
+
+            CompletableFuture<SearchFacesByImageResponse> search = AwsClients.shared().rekognitionAsync()
+                    .searchFacesByImage(SearchFacesByImageRequest.builder()
+                            .collectionId(AwsClients.COLLECTION_ID)
+                            .image(image)
+                            .faceMatchThreshold(Math.max(FACE_MATCH_THRESHOLD, (float) minSimilarity))
+                            .maxFaces(topK)
+                            .build());
+            // Cancelling the match aborts the search, rather than leaving Rekognition to answer no one
+            answer.whenComplete((done, error) -> {
+                if (answer.isCancelled()) {
+                    search.cancel(true);
+                }
+            });
+            String sent = summary;
+            long size = payload.length;
+            search.whenComplete((searchFacesByImageResult, error) -> {
+                if (error != null) {
+                    answer.completeExceptionally(GuardedMatchEngine.unwrap(error));
+                    return;
+                }
+                long end = System.nanoTime();
+                String report = sent + (inline
+                        ? String.format(", sent inline, answered in %d ms", TimeUnit.NANOSECONDS.toMillis(end - start))
+                        : String.format(", uploaded in %d ms, answered in %d ms",
+                                TimeUnit.NANOSECONDS.toMillis(uploaded - start),
+                                TimeUnit.NANOSECONDS.toMillis(end - start)));
+
+                // Rekognition returns the faces ranked by similarity, best first
+                List<MatchResult> results = new ArrayList<>();
+                for (FaceMatch face : searchFacesByImageResult.faceMatches()) {
+                    results.add(new MatchResult(face.face().externalImageId(), face.similarity(),
+                            face.face().confidence()));
+                }
+                answer.complete(new Answer(this, results, null, report, size));
+            });
+        });
+        return answer;
+    }
+
+    // By content, so every sketch is kept and concurrent searches never read each other's upload
+    static String sketchKey(String fileName, byte[] payload) {
+        int dot = fileName.lastIndexOf('.');
+        return SKETCH_FOLDER + MatchResultCache.hash(payload) + (dot >= 0 ? fileName.substring(dot).toLowerCase() : "");
+    }
+
+    private static void upload(String key, String contentType, byte[] payload) {
+        AwsClients.shared().s3().putObject(PutObjectRequest.builder()
+                .bucket(AwsClients.BUCKET_NAME)
+                .key(key)
+                .contentType(contentType)
+                .build(), RequestBody.fromBytes(payload));
+    }
+
+    // Keep a copy of the sketch in S3 while it is searched for; the match does not depend on it
+    private void archive(String key, String contentType, byte[] payload) {
+        long start = System.nanoTime();
+        CompletableFuture.runAsync(() -> upload(key, contentType, payload), executor)
+                .whenComplete((done, error) -> {
+                    if (error != null) {
+                        LOGGER.log(Level.WARNING, "Could not archive " + key + " to " + AwsClients.BUCKET_NAME, error);
+                    } else {
+                        LOGGER.fine(() -> "Archived " + key + " to " + AwsClients.BUCKET_NAME + " in "
+                                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+                    }
+                });
+    }
+
+    @Override
+    public URI photoUri(String externalImageId) {
+        return URI.create("https://" + AwsClients.BUCKET_NAME + ".s3." + AwsClients.CLIENT_REGION.id()
+                + ".amazonaws.com/" + photoKey(externalImageId));
+    }
+
+    // The bucket need not be public: photos are downloaded through a URL signed for a while
+    @Override
+    public URI photoDownloadUri(String externalImageId) {
+        if (!PRESIGN_PHOTOS) {
+            return photoUri(externalImageId);
+        }
+        PresignedGetObjectRequest presigned = AwsClients.shared().presigner().presignGetObject(
+                GetObjectPresignRequest.builder()
+                        .signatureDuration(PRESIGNED_FOR)
+                        .getObjectRequest(GetObjectRequest.builder()
+                                .bucket(AwsClients.BUCKET_NAME)
+                                .key(photoKey(externalImageId))
+                                .build())
+                        .build());
+        try {
+            return presigned.url().toURI();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Indexed photos are Photos/<name>, with the slash made an underscore in the external image id
+    private static String photoKey(String externalImageId) {
+        return "Photos/" + externalImageId.replace("Photos_", "");
+    }
+
+    @Override
+    public String toString() {
+        return "aws (" + AwsClients.CLIENT_REGION.id() + "/" + AwsClients.COLLECTION_ID + ")";
+    }
+}
@@ -0,0 +1,175 @@
+package com.mycompany.forensics_finall;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Stops calling a backend that keeps failing, so callers get an error at once
+ * instead of waiting on a socket that will time out anyway.
+ *
+ * Closed, calls go through. After {@code failureThreshold} failures in a row
+ * the breaker opens and every call is refused with a
+ * {@link CircuitOpenException}. Once the open period has passed it is half
+ * open: a single call goes through as a probe while the rest are still
+ * refused. A successful probe closes the breaker; a failed one opens it again
+ * for twice as long, up to {@link #MAX_OPEN_MILLIS}.
+ *
+ * Listeners are told of every change of state, on the thread that caused it.
+ * Thread-safe.
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreaker.class.getName());
+
+    static final long MAX_OPEN_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openFor;
+    private long openUntil;
+    private boolean probing;
+    private long rejected;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.openFor = openMillis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Ask to make a call. Every call let through must be followed by
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onAbandoned()}.
+     *
+     * @throws CircuitOpenException if the breaker is open, or half open with its probe already out
+     */
+    public void acquire() throws CircuitOpenException {
+        boolean changed = false;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (state == State.OPEN && now >= openUntil) {
+                state = State.HALF_OPEN;
+                changed = true;
+            }
+            if (state == State.CLOSED) {
+                return;
+            }
+            if (state == State.HALF_OPEN && !probing) {
+                probing = true;
+            } else {
+                rejected++;
+                throw new CircuitOpenException(name, Math.max(0, openUntil - now));
+            }
+        }
+        if (changed) {
+            LOGGER.info(name + " has been unavailable for " + openFor + " ms, probing");
+            fireChanged();
+        }
+    }
+
+    /** The call went through and the backend answered, even if only to say no. */
+    public void onSuccess() {
+        synchronized (this) {
+            probing = false;
+            failures = 0;
+            openFor = openMillis;
+            if (state == State.CLOSED) {
+                return;
+            }
+            state = State.CLOSED;
+        }
+        LOGGER.info(name + " is available again");
+        fireChanged();
+    }
+
+    /** The call timed out, could not connect, or the backend was overloaded or down. */
+    public void onFailure() {
+        synchronized (this) {
+            failures++;
+            if (state == State.HALF_OPEN) {
+                probing = false;
+                openFor = Math.min(MAX_OPEN_MILLIS, openFor * 2);
+            } else if (state != State.CLOSED || failures < failureThreshold) {
+                return;
+            }
+            state = State.OPEN;
+            openUntil = System.currentTimeMillis() + openFor;
+        }
+        LOGGER.warning(name + " failed " + failures + " times in a row, failing fast for " + openFor + " ms");
+        fireChanged();
+    }
+
+    /** The call was cancelled before it told anything about the backend. */
+    public synchronized void onAbandoned() {
+        probing = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /** Milliseconds until a probe is let through, 0 unless open. */
+    public synchronized long getRetryAfterMillis() {
+        return state == State.OPEN ? Math.max(0, openUntil - System.currentTimeMillis()) : 0;
+    }
+
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireChanged() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        switch (state) {
+            case OPEN:
+                return String.format("%s unavailable after %d failures, retrying in %d s, %d calls refused",
+                        name, failures, TimeUnit.MILLISECONDS.toSeconds(getRetryAfterMillis() + 999), rejected);
+            case HALF_OPEN:
+                return name + " probing";
+            default:
+                return name + " available";
+        }
+    }
+
+    /** Refused without calling the backend, because it has been failing. */
+    public static class CircuitOpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final long retryAfterMillis;
+
+        public CircuitOpenException(String name, long retryAfterMillis) {
+            super(name + " is unavailable after repeated failures, retrying in "
+                    + TimeUnit.MILLISECONDS.toSeconds(retryAfterMillis + 999) + " s");
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public long getRetryAfterMillis() {
+            return retryAfterMillis;
+        }
+    }
+}
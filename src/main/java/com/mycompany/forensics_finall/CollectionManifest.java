@@ -0,0 +1,117 @@
+package com.mycompany.forensics_finall;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+
+/**
+ * What has been indexed into a Rekognition collection: for every S3 object,
+ * the ETag it had when it was indexed and the face ids that indexing created.
+ * A sync compares it with the bucket to find the objects that are new,
+ * changed or gone, and to know which faces to delete for them.
+ *
+ * Rows live in the {@code collection_manifest} table of the app's SQLite file,
+ * keyed by collection and S3 key. Unlike {@link MatchResultCache}, failures
+ * are thrown: a manifest that silently lost a row would leave faces in the
+ * collection that nothing deletes. Thread-safe.
+ */
+public class CollectionManifest implements AutoCloseable {
+
+    /** An indexed object. */
+    public static final class Entry {
+        private final String etag;
+        private final List<String> faceIds;
+
+        Entry(String etag, List<String> faceIds) {
+            this.etag = etag;
+            this.faceIds = faceIds;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public List<String> getFaceIds() {
+            return faceIds;
+        }
+    }
+
+    private final String collectionId;
+    private final Connection conn;
+
+    public CollectionManifest(String url, String collectionId) throws SQLException {
+        this.collectionId = collectionId;
+        this.conn = DriverManager.getConnection(url);
+        try (Statement statement = conn.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS collection_manifest ("
+                    + "collection TEXT NOT NULL, s3_key TEXT NOT NULL, etag TEXT NOT NULL, "
+                    + "face_ids TEXT NOT NULL, indexed INTEGER NOT NULL, "
+                    + "PRIMARY KEY (collection, s3_key))");
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    /** Every object indexed into the collection, keyed by S3 key. */
+    public synchronized Map<String, Entry> load() throws SQLException {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        try (PreparedStatement query = conn.prepareStatement(
+                "SELECT s3_key, etag, face_ids FROM collection_manifest WHERE collection = ?")) {
+            query.setString(1, collectionId);
+            try (ResultSet resultSet = query.executeQuery()) {
+                while (resultSet.next()) {
+                    entries.put(resultSet.getString("s3_key"),
+                            new Entry(resultSet.getString("etag"), faceIds(resultSet.getString("face_ids"))));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /** Record the faces the object now has in the collection. */
+    public synchronized void put(String key, String etag, List<String> faceIds) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT OR REPLACE INTO collection_manifest (collection, s3_key, etag, face_ids, indexed) "
+                + "VALUES (?, ?, ?, ?, ?)")) {
+            insert.setString(1, collectionId);
+            insert.setString(2, key);
+            insert.setString(3, etag);
+            insert.setString(4, new JSONArray(faceIds).toString());
+            insert.setLong(5, System.currentTimeMillis());
+            insert.executeUpdate();
+        }
+    }
+
+    public synchronized void remove(String key) throws SQLException {
+        try (PreparedStatement delete = conn.prepareStatement(
+                "DELETE FROM collection_manifest WHERE collection = ? AND s3_key = ?")) {
+            delete.setString(1, collectionId);
+            delete.setString(2, key);
+            delete.executeUpdate();
+        }
+    }
+
+    private static List<String> faceIds(String json) {
+        JSONArray array = new JSONArray(json);
+        List<String> faceIds = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            faceIds.add(array.getString(i));
+        }
+        return Collections.unmodifiableList(faceIds);
+    }
+
+    @Override
+    public synchronized void close() throws SQLException {
+        conn.close();
+    }
+}
@@ -1,111 +1,385 @@
 package com.mycompany.forensics_finall;
 
-import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
 import software.amazon.awssdk.services.rekognition.model.*;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
-import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.S3Object; // No alias needed
-import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
-import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
+/**
+ * Keeps the Rekognition collection in step with the gallery photos under
+ * {@code Photos/} in the bucket, without a display.
+ *
+ * <pre>
+ * Collectionsaddforrekognition [-prefix Photos/] [-workers n] [-tps n] [-retries n] [-backoff ms]
+ *                              [-manifest jdbc-url]
+ * </pre>
+ *
+ * A {@link CollectionManifest} in the app's SQLite file (or {@code -manifest})
+ * records the ETag and face ids of every indexed object. Each sync lists the
+ * bucket page by page and indexes only the objects that are new or whose ETag
+ * has changed; a changed object's old faces are deleted once its new ones are
+ * in, so a suspect never drops out of the collection. Once the whole listing
+ * is in, the faces of objects that are gone are deleted in batches. Apart from
+ * listing, a sync costs as much as what changed, not the size of the gallery.
+ *
+ * Changed objects are indexed by {@code -workers} threads (default 8) while
+ * listing goes on; listing waits while every worker is busy. Calls go through
+ * an {@link AdaptiveRateLimiter} that starts at {@code -tps} (default 5, the
+ * account's quota) and slows down on every throttle. Throttled calls, and
+ * failures the SDK deems retryable, are retried up to {@code -retries} times
+ * (default 8) after a jittered exponential backoff starting at
+ * {@code -backoff} ms (default 500); the client itself retries nothing, so
+ * every throttle reaches the limiter.
+ *
+ * The manifest is written as each object finishes, so an interrupted sync
+ * picks up where it stopped. Progress is printed every 500 photos, and a
+ * throughput report at the end.
+ */
 public class Collectionsaddforrekognition {
 
-    private static final Region CLIENT_REGION = Region.US_EAST_2;
-    private static final String AWS_ACCESS_KEY_ID = "xyz"; // Replace with your AWS access key
-    private static final String AWS_SECRET_ACCESS_KEY = "xyz"; // Replace with your AWS secret key
-    private static final String BUCKET_NAME = "forensics-bucket-project"; // Your S3 bucket name
-    private static final String COLLECTION_ID = "Records"; // Your Rekognition collection ID
+    // Region, credentials, bucket and collection are the app's, see AwsClients
+    private static final String BUCKET_NAME = AwsClients.BUCKET_NAME;
+    private static final String COLLECTION_ID = AwsClients.COLLECTION_ID;
     private static final String PHOTOS_FOLDER = "Photos/"; // The folder containing images
 
-    public static void main(String[] args) {
-        Collectionsaddforrekognition app = new Collectionsaddforrekognition();
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final int PROGRESS_EVERY = 500;
+    // Most face ids one DeleteFaces call takes
+    private static final int DELETE_BATCH = 4096;
 
-        // Retrieve images from S3 bucket
-        List<String> imageNames = app.getImagesFromS3();
+    /** Outcome of a sync. */
+    public static final class Report {
+        private final int added;
+        private final int changed;
+        private final int removed;
+        private final int unchanged;
+        private final int faces;
+        private final int facesDeleted;
+        private final int noFace;
+        private final int failed;
+        private final int retries;
+        private final long nanos;
+        private final LatencyRecorder latency;
+        private final AdaptiveRateLimiter limiter;
 
-        // Add images to the Rekognition collection
-        app.addImagesToCollection(imageNames);
-    }
+        Report(int added, int changed, int removed, int unchanged, int faces, int facesDeleted, int noFace,
+                int failed, int retries, long nanos, LatencyRecorder latency, AdaptiveRateLimiter limiter) {
+            this.added = added;
+            this.changed = changed;
+            this.removed = removed;
+            this.unchanged = unchanged;
+            this.faces = faces;
+            this.facesDeleted = facesDeleted;
+            this.noFace = noFace;
+            this.failed = failed;
+            this.retries = retries;
+            this.nanos = nanos;
+            this.latency = latency;
+            this.limiter = limiter;
+        }
 
-    private List<String> getImagesFromS3() {
-        List<String> imageNames = new ArrayList<>();
+        /** Photos indexed, new or changed. */
+        public int getIndexed() {
+            return added + changed;
+        }
 
-        try ( S3Client s3Client = S3Client.builder()
-                .region(CLIENT_REGION)
-                .credentialsProvider(StaticCredentialsProvider.create(
-                        AwsBasicCredentials.create(AWS_ACCESS_KEY_ID, AWS_SECRET_ACCESS_KEY)))
-                .build()) {
+        public int getRemoved() {
+            return removed;
+        }
 
-            // Create a request to list objects in the specified S3 folder
-            ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
-                    .bucket(BUCKET_NAME)
-                    .prefix(PHOTOS_FOLDER)
-                    .build();
+        public int getFailed() {
+            return failed;
+        }
 
-            ListObjectsV2Response listResponse = s3Client.listObjectsV2(listRequest);
+        public double getPhotosPerSecond() {
+            return nanos == 0 ? 0 : getIndexed() / (nanos / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Indexed %d new and %d changed photos, removed %d, %d unchanged"
+                    + " (%d faces added, %d deleted, %d photos without a face, %d failed, %d retries)"
+                    + " in %.2f s, %.2f photos/s%nrate limiter: %s%n%s",
+                    added, changed, removed, unchanged, faces, facesDeleted, noFace, failed, retries,
+                    nanos / (double) TimeUnit.SECONDS.toNanos(1), getPhotosPerSecond(), limiter, latency);
+        }
+    }
+
+    private final S3Client s3Client;
+    private final RekognitionClient rekognitionClient;
+    private final AdaptiveRateLimiter limiter;
+    private final int retries;
+    private final long backoffMillis;
+    private final AtomicInteger retried = new AtomicInteger();
 
-            // Add each object key to the imageNames list
-            for (S3Object s3Object : listResponse.contents()) { // Use the S3Object class directly
-                String objectKey = s3Object.key();
+    public Collectionsaddforrekognition(S3Client s3Client, RekognitionClient rekognitionClient,
+            AdaptiveRateLimiter limiter, int retries, long backoffMillis) {
+        this.s3Client = s3Client;
+        this.rekognitionClient = rekognitionClient;
+        this.limiter = limiter;
+        this.retries = retries;
+        this.backoffMillis = backoffMillis;
+    }
+
+    /**
+     * Bring the collection and the manifest in line with the photos under the
+     * prefix. Failed objects are left as the manifest had them, so a later
+     * sync tries them again. Nothing is removed unless the whole prefix was
+     * listed.
+     */
+    public Report sync(String prefix, CollectionManifest manifest, int workers)
+            throws SQLException, InterruptedException {
+        Map<String, CollectionManifest.Entry> indexed = manifest.load();
+        Set<String> listed = new HashSet<>();
+        LatencyRecorder latency = new LatencyRecorder("latency");
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger changed = new AtomicInteger();
+        AtomicInteger faces = new AtomicInteger();
+        AtomicInteger facesDeleted = new AtomicInteger();
+        AtomicInteger noFace = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        int unchanged = 0;
+        Semaphore inFlight = new Semaphore(workers);
+        ExecutorService pool = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "rekognition-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        try {
+            // The paginator fetches the next page of up to 1,000 keys only when this loop gets to it
+            for (S3Object object : s3Client.listObjectsV2Paginator(ListObjectsV2Request.builder()
+                    .bucket(BUCKET_NAME)
+                    .prefix(prefix)
+                    .build()).contents()) {
+                String imageName = object.key();
                 // Filter for image file types if necessary (e.g., jpg, png)
-                if (objectKey.endsWith(".jpg") || objectKey.endsWith(".png")) {
-                    imageNames.add(objectKey);
+                if (!imageName.endsWith(".jpg") && !imageName.endsWith(".png")) {
+                    continue;
                 }
+                listed.add(imageName);
+                CollectionManifest.Entry previous = indexed.get(imageName);
+                if (previous != null && object.eTag().equals(previous.getEtag())) {
+                    unchanged++;
+                    continue;
+                }
+
+                inFlight.acquire();
+                pool.execute(() -> {
+                    long started = System.nanoTime();
+                    try {
+                        List<String> faceIds = new ArrayList<>();
+                        index(imageName).faceRecords().forEach(faceRecord -> faceIds.add(faceRecord.face().faceId()));
+                        latency.record(System.nanoTime() - started);
+                        if (faceIds.isEmpty()) {
+                            noFace.incrementAndGet();
+                            System.out.println("No faces detected in the image: " + imageName);
+                        }
+                        faces.addAndGet(faceIds.size());
+                        if (previous != null && !previous.getFaceIds().isEmpty()) {
+                            try {
+                                deleteFaces(previous.getFaceIds());
+                                facesDeleted.addAndGet(previous.getFaceIds().size());
+                            } catch (InterruptedException | RuntimeException e) {
+                                // Keep the old ETag, so the next sync indexes it again and deletes both sets
+                                List<String> both = new ArrayList<>(previous.getFaceIds());
+                                both.addAll(faceIds);
+                                manifest.put(imageName, previous.getEtag(), both);
+                                throw e;
+                            }
+                        }
+                        manifest.put(imageName, object.eTag(), faceIds);
+                        (previous == null ? added : changed).incrementAndGet();
+                        int count = added.get() + changed.get();
+                        if (count % PROGRESS_EVERY == 0) {
+                            System.out.printf("%d indexed, %.1f photos/s, %s%n", count,
+                                    count / ((System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1)),
+                                    limiter);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        failed.incrementAndGet();
+                        System.err.println("Interrupted adding " + imageName + " to collection");
+                    } catch (SQLException | RuntimeException e) {
+                        failed.incrementAndGet();
+                        System.err.println("Error adding " + imageName + " to collection: " + e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
             }
+            // Every permit back means every photo handed out has finished
+            inFlight.acquire(workers);
+        } finally {
+            // Let photos in flight finish rather than interrupt them, so no face indexed goes unrecorded
+            pool.shutdown();
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.out.println("Waiting for " + (workers - inFlight.availablePermits()) + " photos in flight");
+            }
+        }
+        System.out.println("Listed " + listed.size() + " photos under " + prefix);
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.err.println("Error retrieving images from S3: " + e.getMessage());
+        // Objects the manifest has but the bucket no longer does, their faces deleted a batch at a time
+        int removed = 0;
+        List<String> gone = new ArrayList<>();
+        List<String> batch = new ArrayList<>();
+        for (Map.Entry<String, CollectionManifest.Entry> entry : indexed.entrySet()) {
+            if (!entry.getKey().startsWith(prefix) || listed.contains(entry.getKey())) {
+                continue;
+            }
+            if (batch.size() + entry.getValue().getFaceIds().size() > DELETE_BATCH) {
+                removed += remove(gone, batch, manifest, facesDeleted, failed);
+            }
+            gone.add(entry.getKey());
+            batch.addAll(entry.getValue().getFaceIds());
         }
+        removed += remove(gone, batch, manifest, facesDeleted, failed);
 
-        return imageNames;
+        return new Report(added.get(), changed.get(), removed, unchanged, faces.get(), facesDeleted.get(),
+                noFace.get(), failed.get(), retried.get(), System.nanoTime() - start, latency, limiter);
     }
 
-    private void addImagesToCollection(List<String> imageNames) {
-    try (RekognitionClient rekognitionClient = RekognitionClient.builder()
-            .region(CLIENT_REGION)
-            .credentialsProvider(StaticCredentialsProvider.create(
-                    AwsBasicCredentials.create(AWS_ACCESS_KEY_ID, AWS_SECRET_ACCESS_KEY)))
-            .build()) {
+    // Delete the faces of objects that are gone, then forget the objects; returns how many were removed
+    private int remove(List<String> gone, List<String> faceIds, CollectionManifest manifest,
+            AtomicInteger facesDeleted, AtomicInteger failed) throws SQLException, InterruptedException {
+        int removed = gone.size();
+        try {
+            if (!faceIds.isEmpty()) {
+                deleteFaces(faceIds);
+                facesDeleted.addAndGet(faceIds.size());
+            }
+            for (String key : gone) {
+                manifest.remove(key);
+                System.out.println("Removed " + key + " from collection");
+            }
+        } catch (RuntimeException e) {
+            failed.addAndGet(gone.size());
+            removed = 0;
+            System.err.println("Error removing " + gone.size() + " photos from collection: " + e);
+        }
+        gone.clear();
+        faceIds.clear();
+        return removed;
+    }
 
-        for (String imageName : imageNames) {
-            // Get the filename without path
-            String externalImageId = imageName.replaceAll("[^a-zA-Z0-9_.\\-:]", "_");
+    private IndexFacesResponse index(String imageName) throws InterruptedException {
+        // Get the filename without path
+        String externalImageId = imageName.replaceAll("[^a-zA-Z0-9_.\\-:]", "_");
 
-            software.amazon.awssdk.services.rekognition.model.S3Object rekognitionS3Object = software.amazon.awssdk.services.rekognition.model.S3Object.builder()
-                    .bucket(BUCKET_NAME)
-                    .name(imageName)
-                    .build();
-
-            IndexFacesRequest indexFacesRequest = IndexFacesRequest.builder()
-                    .collectionId(COLLECTION_ID)
-                    .image(software.amazon.awssdk.services.rekognition.model.Image.builder()
-                            .s3Object(rekognitionS3Object)
-                            .build())
-                    .externalImageId(externalImageId) // Use the modified external image ID
-                    .detectionAttributesWithStrings(List.of("ALL"))
-                    .build();
-
-            IndexFacesResponse indexFacesResponse = rekognitionClient.indexFaces(indexFacesRequest);
-
-            if (!indexFacesResponse.faceRecords().isEmpty()) {
-                System.out.println("Successfully added face to collection: " + externalImageId);
-                indexFacesResponse.faceRecords().forEach(faceRecord -> {
-                    System.out.println("Face ID: " + faceRecord.face().faceId());
-                });
-            } else {
-                System.out.println("No faces detected in the image: " + imageName);
+        IndexFacesRequest indexFacesRequest = IndexFacesRequest.builder()
+                .collectionId(COLLECTION_ID)
+                .image(Image.builder()
+                        .s3Object(software.amazon.awssdk.services.rekognition.model.S3Object.builder()
+                                .bucket(BUCKET_NAME)
+                                .name(imageName)
+                                .build())
+                        .build())
+                .externalImageId(externalImageId) // Use the modified external image ID
+                .detectionAttributesWithStrings(List.of("ALL"))
+                .build();
+
+        return call(() -> rekognitionClient.indexFaces(indexFacesRequest));
+    }
+
+    private void deleteFaces(List<String> faceIds) throws InterruptedException {
+        DeleteFacesResponse deleteFacesResponse = call(() -> rekognitionClient.deleteFaces(DeleteFacesRequest.builder()
+                .collectionId(COLLECTION_ID)
+                .faceIds(faceIds)
+                .build()));
+        if (deleteFacesResponse.deletedFaces().size() < faceIds.size()) {
+            // Faces deleted by hand or by an earlier, interrupted sync
+            System.out.println((faceIds.size() - deleteFacesResponse.deletedFaces().size())
+                    + " faces were already gone from the collection");
+        }
+    }
+
+    // Call at the limiter's pace, backing off and retrying while throttled or failing transiently
+    private <T> T call(Supplier<T> request) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            limiter.acquire();
+            try {
+                T response = request.get();
+                limiter.onSuccess();
+                return response;
+            } catch (ProvisionedThroughputExceededException | ThrottlingException e) {
+                limiter.onThrottle();
+                if (attempt > retries) {
+                    throw e;
+                }
+            } catch (SdkException e) {
+                if (attempt > retries || !e.retryable()) {
+                    throw e;
+                }
             }
+            retried.incrementAndGet();
+            // Full jitter, so workers throttled together do not come back together
+            long ceiling = Math.min(MAX_BACKOFF_MS, backoffMillis << Math.min(attempt - 1, 16));
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
         }
-    } catch (Exception e) {
-        e.printStackTrace();
-        System.err.println("Error adding images to collection: " + e.getMessage());
     }
-}
 
+    public static void main(String[] args) throws Exception {
+        List<String> unknown = new ArrayList<>();
+        String prefix = PHOTOS_FOLDER;
+        int workers = 8;
+        double tps = 5;
+        int retries = 8;
+        long backoff = 500;
+        String manifestUrl = "jdbc:sqlite:login.sqlite";
+        for (int i = 0; i < args.length; i++) {
+            if ("-prefix".equals(args[i]) && i + 1 < args.length) {
+                prefix = args[++i];
+            } else if ("-workers".equals(args[i]) && i + 1 < args.length) {
+                workers = Integer.parseInt(args[++i]);
+            } else if ("-tps".equals(args[i]) && i + 1 < args.length) {
+                tps = Double.parseDouble(args[++i]);
+            } else if ("-retries".equals(args[i]) && i + 1 < args.length) {
+                retries = Integer.parseInt(args[++i]);
+            } else if ("-backoff".equals(args[i]) && i + 1 < args.length) {
+                backoff = Long.parseLong(args[++i]);
+            } else if ("-manifest".equals(args[i]) && i + 1 < args.length) {
+                manifestUrl = args[++i];
+            } else {
+                unknown.add(args[i]);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            System.err.println("Usage: Collectionsaddforrekognition [-prefix Photos/] [-workers n] [-tps n]"
+                    + " [-retries n] [-backoff ms] [-manifest jdbc-url]");
+            System.exit(2);
+        }
 
+        // Retries are done here, so the limiter hears about every throttle
+        try (RekognitionClient rekognitionClient = AwsClients.rekognitionBuilder()
+                .overrideConfiguration(config -> config.retryStrategy(retry -> retry.maxAttempts(1)))
+                .build();
+                CollectionManifest manifest = new CollectionManifest(manifestUrl, COLLECTION_ID)) {
+            AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(tps, Math.min(tps, 0.5), tps);
+            System.out.println("Syncing s3://" + BUCKET_NAME + "/" + prefix + " into " + COLLECTION_ID + " with "
+                    + workers + " workers at up to " + tps + " TPS");
+            Collectionsaddforrekognition app = new Collectionsaddforrekognition(AwsClients.shared().s3(),
+                    rekognitionClient, limiter, retries, backoff);
+            Report report = app.sync(prefix, manifest, workers);
+            System.out.println(report);
+            if (report.getFailed() > 0) {
+                System.exit(1);
+            }
+        }
+    }
 }
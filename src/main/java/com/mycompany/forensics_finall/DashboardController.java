@@ -3,28 +3,94 @@ package com.mycompany.forensics_finall;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javafx.embed.swing.SwingFXUtils;
+import javafx.animation.AnimationTimer;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
+import javafx.scene.CacheHint;
+import javafx.scene.Cursor;
+import javafx.scene.Group;
 import javafx.scene.Node;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.shape.Rectangle;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
-import javax.imageio.ImageIO;
 
 
 public class DashboardController implements Initializable {
 
+    private static final Logger LOGGER = Logger.getLogger(DashboardController.class.getName());
+
+    // Palette grid: thumbnail size and the position of the first cell
+    private static final double PALETTE_CELL = 100.0;
+    private static final double PALETTE_LEFT = 30.0;
+    private static final double PALETTE_TOP = 129.0;
+    private static final double PALETTE_COLUMN_STEP = 134.0;
+    private static final double PALETTE_ROW_STEP = 135.0;
+
+    // Set -Dforensics.drag.measure=true to log per-frame drag latency after every drag
+    private static final boolean MEASURE_DRAG = Boolean.getBoolean("forensics.drag.measure");
+
+    // Saved sketches are rendered at this multiple of the on-screen canvas size
+    private static final double OUTPUT_SCALE = Double.parseDouble(System.getProperty("forensics.sketch.outputScale", "1"));
+
+    private static final FileChooser.ExtensionFilter DESCRIPTOR_FILTER =
+            new FileChooser.ExtensionFilter("Sketch descriptor", "*" + SketchDescriptor.EXTENSION);
+
+    private static final PngEncoder PNG_ENCODER = PngEncoder.fromSystemProperties();
+
+    private final ElementImageCache elementCache = ElementImageCache.shared();
+    private final SketchManifest manifest = SketchManifest.getDefault();
+    private final SketchModel model = new SketchModel(manifest);
+
+    // One canvas node per category, holding the layers of its selected element
+    private final Map<SketchManifest.Category, Group> canvasLayers = new HashMap<>();
+
+    // Export currently running, if any
+    private SketchExportTask saving;
+
+    // Mouse position and layer offset when the current drag started
+    private double dragMouseX;
+    private double dragMouseY;
+    private double dragStartX;
+    private double dragStartY;
+
+    // Latest drag position not yet applied; mouse events are coalesced to one model update per pulse
+    private SketchManifest.Category dragCategory;
+    private double dragTargetX;
+    private double dragTargetY;
+    private boolean dragPending;
+    private long dragEventTime;
+    private int dragEvents;
+    private long lastDragFrame;
+    private final AnimationTimer dragPulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            applyDrag();
+        }
+    };
+
+    // Drag measurement mode, logged when the mouse is released
+    private final LatencyRecorder dragLatency = new LatencyRecorder("Drag event to frame");
+    private final LatencyRecorder dragFrames = new LatencyRecorder("Drag frame interval");
+
     @FXML
     private AnchorPane guideline;
     @FXML
@@ -76,375 +142,13 @@ public class DashboardController implements Initializable {
     @FXML
     private AnchorPane more_elements;
     @FXML
-    private ImageView head_e_1;
-    @FXML
-    private ImageView head_e_2;
-    @FXML
-    private ImageView hair_e_1;
-    @FXML
-    private ImageView hair_e_2;
-    @FXML
-    private ImageView eyes_e_1;
-    @FXML
-    private ImageView eyes_e_2;
-    @FXML
-    private ImageView eyeb_e_1;
-    @FXML
-    private ImageView eyeb_e_2;
-    @FXML
-    private ImageView nose_e_1;
-    @FXML
-    private ImageView nose_e_2;
-    @FXML
-    private ImageView lips_e_1;
-    @FXML
-    private ImageView lips_e_2;
-    @FXML
-    private ImageView must_e_1;
-    @FXML
-    private ImageView must_e_2;
-    @FXML
-    private ImageView more_e_1;
-    @FXML
-    private ImageView more_e_2;
-    @FXML
     private AnchorPane alignment;
     @FXML
-    private ImageView head_s_1;
-    @FXML
-    private ImageView head_s_2;
-    @FXML
-    private ImageView hair_s_1;
-    @FXML
-    private ImageView hair_s_2;
-    @FXML
-    private ImageView eyes_s_1;
-    @FXML
-    private ImageView eyes_s_2;
-    @FXML
-    private ImageView eyeb_s_1;
-    @FXML
-    private ImageView eyeb_s_2;
-    @FXML
-    private ImageView nose_s_1;
-    @FXML
-    private ImageView nose_s_2;
-    @FXML
-    private ImageView lips_s_1;
-    @FXML
-    private ImageView lips_s_2;
-    @FXML
-    private ImageView must_s_1;
-    @FXML
-    private ImageView must_s_2;
-    @FXML
-    private ImageView more_s_1;
-    @FXML
-    private ImageView more_s_2;
-    @FXML
-    private Rectangle head_del;
-    @FXML
-    private Rectangle hair_del;
-    @FXML
-    private Rectangle eyes_del;
-    @FXML
-    private Rectangle eyeb_del;
-    @FXML
-    private Rectangle nose_del;
-    @FXML
-    private Rectangle lips_del;
-    @FXML
-    private Rectangle must_del;
-    @FXML
-    private Rectangle more_del;
-    @FXML
-    private ImageView head_e_3;
-    @FXML
-    private ImageView head_e_4;
-    @FXML
-    private ImageView head_e_5;
-    @FXML
-    private ImageView head_e_6;
-    @FXML
-    private ImageView head_e_7;
-    @FXML
-    private ImageView head_e_8;
-    @FXML
-    private ImageView head_e_9;
-    @FXML
-    private ImageView head_e_10;
-    @FXML
-    private ImageView hair_e_3;
-    @FXML
-    private ImageView hair_e_4;
-    @FXML
-    private ImageView hair_e_5;
-    @FXML
-    private ImageView hair_e_6;
-    @FXML
-    private ImageView hair_e_7;
-    @FXML
-    private ImageView hair_e_8;
-    @FXML
-    private ImageView hair_e_9;
-    @FXML
-    private ImageView hair_e_10;
-    @FXML
-    private ImageView hair_e_11;
-    @FXML
-    private ImageView hair_e_12;
-    @FXML
-    private ImageView eyes_e_3;
-    @FXML
-    private ImageView eyes_e_4;
-    @FXML
-    private ImageView eyes_e_5;
-    @FXML
-    private ImageView eyes_e_6;
-    @FXML
-    private ImageView eyes_e_7;
-    @FXML
-    private ImageView eyes_e_8;
-    @FXML
-    private ImageView eyes_e_9;
-    @FXML
-    private ImageView eyes_e_10;
-    @FXML
-    private ImageView eyes_e_11;
-    @FXML
-    private ImageView eyes_e_12;
-    @FXML
-    private ImageView eyeb_e_3;
-    @FXML
-    private ImageView eyeb_e_4;
-    @FXML
-    private ImageView eyeb_e_5;
-    @FXML
-    private ImageView eyeb_e_6;
-    @FXML
-    private ImageView eyeb_e_7;
-    @FXML
-    private ImageView eyeb_e_8;
-    @FXML
-    private ImageView eyeb_e_9;
-    @FXML
-    private ImageView eyeb_e_10;
-    @FXML
-    private ImageView eyeb_e_11;
-    @FXML
-    private ImageView eyeb_e_12;
-    @FXML
-    private ImageView nose_e_3;
-    @FXML
-    private ImageView nose_e_4;
-    @FXML
-    private ImageView nose_e_5;
-    @FXML
-    private ImageView nose_e_6;
-    @FXML
-    private ImageView nose_e_7;
-    @FXML
-    private ImageView nose_e_8;
-    @FXML
-    private ImageView nose_e_9;
-    @FXML
-    private ImageView nose_e_10;
-    @FXML
-    private ImageView nose_e_11;
-    @FXML
-    private ImageView nose_e_12;
-    @FXML
-    private ImageView lips_e_3;
-    @FXML
-    private ImageView lips_e_4;
-    @FXML
-    private ImageView lips_e_5;
-    @FXML
-    private ImageView lips_e_6;
-    @FXML
-    private ImageView lips_e_7;
-    @FXML
-    private ImageView lips_e_8;
-    @FXML
-    private ImageView lips_e_9;
-    @FXML
-    private ImageView lips_e_10;
-    @FXML
-    private ImageView lips_e_11;
-    @FXML
-    private ImageView lips_e_12;
-    @FXML
-    private ImageView must_e_3;
-    @FXML
-    private ImageView must_e_4;
-    @FXML
-    private ImageView must_e_5;
-    @FXML
-    private ImageView must_e_6;
-    @FXML
-    private ImageView must_e_7;
-    @FXML
-    private ImageView must_e_8;
-    @FXML
-    private ImageView must_e_9;
-    @FXML
-    private ImageView must_e_10;
-    @FXML
-    private ImageView must_e_11;
-    @FXML
-    private ImageView must_e_12;
-    @FXML
-    private ImageView more_s_5;
-    @FXML
-    private ImageView more_s_6;
-    @FXML
-    private ImageView head_s_3;
-    @FXML
-    private ImageView head_s_4;
-    @FXML
-    private ImageView head_s_5;
-    @FXML
-    private ImageView head_s_6;
-    @FXML
-    private ImageView head_s_7;
-    @FXML
-    private ImageView head_s_8;
-    @FXML
-    private ImageView head_s_9;
-    @FXML
-    private ImageView head_s_10;
-    @FXML
-    private ImageView more_s_3;
-    @FXML
-    private ImageView more_s_4;
-    @FXML
-    private ImageView hair_s_3;
-    @FXML
-    private ImageView hair_s_4;
-    @FXML
-    private ImageView hair_s_5;
-    @FXML
-    private ImageView hair_s_6;
-    @FXML
-    private ImageView hair_s_7;
-    @FXML
-    private ImageView hair_s_8;
-    @FXML
-    private ImageView hair_s_9;
-    @FXML
-    private ImageView hair_s_10;
-    @FXML
-    private ImageView hair_s_11;
-    @FXML
-    private ImageView hair_s_12;
-    @FXML
-    private ImageView eyes_s_3;
-    @FXML
-    private ImageView eyes_s_4;
-    @FXML
-    private ImageView eyes_s_5;
-    @FXML
-    private ImageView eyes_s_6;
+    private ProgressBar save_progress;
     @FXML
-    private ImageView eyes_s_7;
+    private Label save_status;
     @FXML
-    private ImageView eyes_s_8;
-    @FXML
-    private ImageView eyes_s_9;
-    @FXML
-    private ImageView eyes_s_10;
-    @FXML
-    private ImageView eyes_s_11;
-    @FXML
-    private ImageView eyes_s_12;
-    @FXML
-    private ImageView eyeb_s_3;
-    @FXML
-    private ImageView eyeb_s_4;
-    @FXML
-    private ImageView eyeb_s_5;
-    @FXML
-    private ImageView eyeb_s_6;
-    @FXML
-    private ImageView eyeb_s_7;
-    @FXML
-    private ImageView eyeb_s_8;
-    @FXML
-    private ImageView eyeb_s_9;
-    @FXML
-    private ImageView eyeb_s_10;
-    @FXML
-    private ImageView eyeb_s_11;
-    @FXML
-    private ImageView eyeb_s_12;
-    @FXML
-    private ImageView nose_s_3;
-    @FXML
-    private ImageView nose_s_4;
-    @FXML
-    private ImageView nose_s_5;
-    @FXML
-    private ImageView nose_s_6;
-    @FXML
-    private ImageView nose_s_7;
-    @FXML
-    private ImageView nose_s_8;
-    @FXML
-    private ImageView nose_s_9;
-    @FXML
-    private ImageView nose_s_10;
-    @FXML
-    private ImageView nose_s_11;
-    @FXML
-    private ImageView nose_s_12;
-    @FXML
-    private ImageView lips_s_3;
-    @FXML
-    private ImageView lips_s_4;
-    @FXML
-    private ImageView lips_s_5;
-    @FXML
-    private ImageView lips_s_6;
-    @FXML
-    private ImageView lips_s_7;
-    @FXML
-    private ImageView lips_s_8;
-    @FXML
-    private ImageView lips_s_9;
-    @FXML
-    private ImageView lips_s_10;
-    @FXML
-    private ImageView lips_s_11;
-    @FXML
-    private ImageView lips_s_12;
-    @FXML
-    private ImageView must_s_3;
-    @FXML
-    private ImageView must_s_4;
-    @FXML
-    private ImageView must_s_5;
-    @FXML
-    private ImageView must_s_6;
-    @FXML
-    private ImageView must_s_7;
-    @FXML
-    private ImageView must_s_8;
-    @FXML
-    private ImageView must_s_9;
-    @FXML
-    private ImageView must_s_10;
-    @FXML
-    private ImageView must_s_11;
-    @FXML
-    private ImageView must_s_12;
-    @FXML
-    private ImageView more_e_3;
-    @FXML
-    private ImageView more_e_4;
-    @FXML
-    private ImageView more_e_5;
-    @FXML
-    private ImageView more_e_6;
+    private Label save_cancel;
 
     /**
      * Initializes the controller class.
@@ -471,114 +175,230 @@ public class DashboardController implements Initializable {
     }
     @Override
     public void initialize(URL url, ResourceBundle rb) {
-         //DECLARE DRAG AND MOVE TO FX:ID
-        dragSketch();
+        buildCanvas();
+        buildPalettes();
+        model.addListener(this::renderCategory);
+        sketch.sceneProperty().addListener((obs, oldScene, scene) -> {
+            if (scene != null) {
+                installShortcuts(scene);
+            }
+        });
     }    
+
+    // Ctrl+Z undoes the last edit; Ctrl+Y or Ctrl+Shift+Z redoes it; Ctrl+O opens a descriptor (Cmd on macOS)
+    private void installShortcuts(Scene scene) {
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.O, KeyCombination.SHORTCUT_DOWN), this::openDescriptor);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN), model::undo);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN), model::redo);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN,
+                KeyCombination.SHIFT_DOWN), model::redo);
+    }
+
+    // Add one node per category to the canvas, stacked by the manifest's z order
+    private void buildCanvas() {
+        for (SketchManifest.Category category : manifest.getCategories()) {
+            Group layer = new Group();
+            layer.setViewOrder(-category.getZ());
+            layer.setOnMousePressed(event -> startDrag(category, event));
+            layer.setOnMouseDragged(event -> drag(category, event));
+            layer.setOnMouseReleased(event -> endDrag(category));
+            canvasLayers.put(category, layer);
+            sketch.getChildren().add(layer);
+        }
+    }
+
+    // Lay out each pane's palette from the manifest; images are loaded when the pane is shown
+    private void buildPalettes() {
+        double height = element_anchor.getPrefHeight();
+        for (Node node : element_anchor.getChildren()) {
+            AnchorPane pane = (AnchorPane) node;
+            String paneId = pane.getId().substring(0, pane.getId().lastIndexOf("_elements"));
+            double top = PALETTE_TOP;
+            for (SketchManifest.Category category : manifest.getCategoriesInPane(paneId)) {
+                int columns = category.getColumns();
+                for (SketchManifest.Element element : category.getElements()) {
+                    ImageView view = new ImageView();
+                    view.setFitWidth(PALETTE_CELL);
+                    view.setFitHeight(PALETTE_CELL);
+                    view.setPreserveRatio(true);
+                    view.setPickOnBounds(true);
+                    view.setCursor(Cursor.HAND);
+                    view.setLayoutX(PALETTE_LEFT + (element.getIndex() % columns) * PALETTE_COLUMN_STEP);
+                    view.setLayoutY(top + (element.getIndex() / columns) * PALETTE_ROW_STEP);
+                    view.setUserData(element);
+                    view.setOnMousePressed(event -> model.select(element));
+                    pane.getChildren().add(view);
+                }
+                top += (category.getElements().size() + columns - 1) / columns * PALETTE_ROW_STEP;
+            }
+            pane.setPrefHeight(Math.max(pane.getPrefHeight(), top));
+            height = Math.max(height, pane.getPrefHeight());
+        }
+        element_anchor.setPrefHeight(height);
+    }
+
+    // Redraw one category's canvas node from the model
+    private void renderCategory(SketchManifest.Category category) {
+        Group layer = canvasLayers.get(category);
+        SketchState.Selection selection = model.get(category);
+        SketchManifest.Element element = selection.getElement();
+        if (layer.getUserData() != element) {
+            layer.setUserData(element);
+            layer.getChildren().clear();
+            if (element != null) {
+                for (int part = 0; part < element.getLayers().size(); part++) {
+                    layer.getChildren().add(layerView(element, part));
+                }
+            }
+        }
+        layer.setTranslateX(selection.getTranslateX());
+        layer.setTranslateY(selection.getTranslateY());
+    }
+
+    private ImageView layerView(SketchManifest.Element element, int part) {
+        SketchManifest.Layer layer = element.getLayers().get(part);
+        ImageView view = new ImageView();
+        view.setLayoutX(layer.getX());
+        view.setLayoutY(layer.getY());
+        view.setFitWidth(layer.getFitWidth());
+        view.setFitHeight(layer.getFitHeight());
+        view.setPreserveRatio(true);
+        view.setPickOnBounds(true);
+        ElementImageCache.Key key = new ElementImageCache.Key(element.getCategory().getId(),
+                element.getIndex(), ElementImageCache.Variant.LAYER, part);
+        Image image = elementCache.get(key, layer.getImage(), 0, 0);
+        if (image != null) {
+            whenLoaded(image, () -> view.setImage(image));
+        }
+        return view;
+    }
+
+    // Show a category's palette from the element cache, decoding misses in the
+    // background with the category icon as a placeholder
+    private void showPalette(AnchorPane pane, Image placeholder) {
+        long start = System.nanoTime();
+        AtomicInteger pending = new AtomicInteger(1);
+        Runnable loaded = () -> {
+            if (pending.decrementAndGet() == 0) {
+                LOGGER.info(String.format("Showed %s palette in %d ms (cache: %s)", pane.getId(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), elementCache));
+            }
+        };
+        for (Node node : pane.getChildren()) {
+            if (node.getUserData() instanceof SketchManifest.Element) {
+                ImageView view = (ImageView) node;
+                SketchManifest.Element element = (SketchManifest.Element) node.getUserData();
+                ElementImageCache.Key key = new ElementImageCache.Key(element.getCategory().getId(),
+                        element.getIndex(), ElementImageCache.Variant.THUMBNAIL);
+                Image image = elementCache.get(key, element.getThumbnail(), view.getFitWidth(), view.getFitHeight());
+                if (image == null) {
+                    continue;
+                }
+                view.setImage(placeholder);
+                pending.incrementAndGet();
+                whenLoaded(image, () -> {
+                    if (pane.isVisible()) {
+                        view.setImage(image);
+                    }
+                    loaded.run();
+                });
+            }
+        }
+        loaded.run();
+    }
+
+    // Drop the palette images of a hidden pane; the cache decides what stays in memory
+    private void releasePalette(AnchorPane pane) {
+        for (Node node : pane.getChildren()) {
+            if (node.getUserData() instanceof SketchManifest.Element) {
+                ((ImageView) node).setImage(null);
+            }
+        }
+    }
+
+    // Run the action on the FX thread once a background image has finished loading
+    private void whenLoaded(Image image, Runnable action) {
+        if (image.getProgress() >= 1.0) {
+            if (!image.isError()) {
+                action.run();
+            }
+            return;
+        }
+        image.progressProperty().addListener((obs, oldProgress, progress) -> {
+            if (progress.doubleValue() >= 1.0 && !image.isError()) {
+                action.run();
+            }
+        });
+    }
     
     //DRAG AND MOVE CODE Class
-    public void drag(MouseEvent event) {
-        Node n = (Node)event.getSource();
-        n.setTranslateX(n.getTranslateX() + event.getX());
-        n.setTranslateY(n.getTranslateY() + event.getY());
+    private void startDrag(SketchManifest.Category category, MouseEvent event) {
+        // Another button, or a press on another layer, while dragging; the drag under way owns the edit
+        if (dragCategory != null) {
+            return;
+        }
+        dragMouseX = event.getSceneX();
+        dragMouseY = event.getSceneY();
+        dragStartX = model.get(category).getTranslateX();
+        dragStartY = model.get(category).getTranslateY();
+        dragCategory = category;
+        dragPending = false;
+        model.beginEdit();
+        dragEvents = 0;
+        lastDragFrame = 0;
+        dragLatency.clear();
+        dragFrames.clear();
+
+        // Move a cached bitmap of the layer instead of recompositing its images every frame
+        Group layer = canvasLayers.get(category);
+        layer.setCache(true);
+        layer.setCacheHint(CacheHint.SPEED);
+        dragPulse.start();
     }
-    
-    //Drag Event assigned to each fx:id in the canvas
-    public void dragSketch() {
-        head_s_1.setOnMouseDragged(event -> drag(event));
-        head_s_2.setOnMouseDragged(event -> drag(event));
-        head_s_3.setOnMouseDragged(event -> drag(event));
-        head_s_4.setOnMouseDragged(event -> drag(event));
-        head_s_5.setOnMouseDragged(event -> drag(event));
-        head_s_6.setOnMouseDragged(event -> drag(event));
-        head_s_7.setOnMouseDragged(event -> drag(event));
-        head_s_8.setOnMouseDragged(event -> drag(event));
-        head_s_9.setOnMouseDragged(event -> drag(event));
-        head_s_10.setOnMouseDragged(event -> drag(event));
-             
-        hair_s_1.setOnMouseDragged(event -> drag(event));
-        hair_s_2.setOnMouseDragged(event -> drag(event));
-        hair_s_3.setOnMouseDragged(event -> drag(event));
-        hair_s_4.setOnMouseDragged(event -> drag(event));
-        hair_s_5.setOnMouseDragged(event -> drag(event));
-        hair_s_6.setOnMouseDragged(event -> drag(event));
-        hair_s_7.setOnMouseDragged(event -> drag(event));
-        hair_s_8.setOnMouseDragged(event -> drag(event));
-        hair_s_9.setOnMouseDragged(event -> drag(event));
-        hair_s_10.setOnMouseDragged(event -> drag(event));
-        hair_s_11.setOnMouseDragged(event -> drag(event));
-        hair_s_12.setOnMouseDragged(event -> drag(event));
-        
-        eyes_s_1.setOnMouseDragged(event -> drag(event));
-        eyes_s_2.setOnMouseDragged(event -> drag(event));
-        eyes_s_3.setOnMouseDragged(event -> drag(event));
-        eyes_s_4.setOnMouseDragged(event -> drag(event));
-        eyes_s_5.setOnMouseDragged(event -> drag(event));
-        eyes_s_6.setOnMouseDragged(event -> drag(event));
-        eyes_s_7.setOnMouseDragged(event -> drag(event));
-        eyes_s_8.setOnMouseDragged(event -> drag(event));
-        eyes_s_9.setOnMouseDragged(event -> drag(event));
-        eyes_s_10.setOnMouseDragged(event -> drag(event));
-        eyes_s_11.setOnMouseDragged(event -> drag(event));
-        eyes_s_12.setOnMouseDragged(event -> drag(event));
-        
-        eyeb_s_1.setOnMouseDragged(event -> drag(event));
-        eyeb_s_2.setOnMouseDragged(event -> drag(event));
-        eyeb_s_3.setOnMouseDragged(event -> drag(event));
-        eyeb_s_4.setOnMouseDragged(event -> drag(event));
-        eyeb_s_5.setOnMouseDragged(event -> drag(event));
-        eyeb_s_6.setOnMouseDragged(event -> drag(event));
-        eyeb_s_7.setOnMouseDragged(event -> drag(event));
-        eyeb_s_8.setOnMouseDragged(event -> drag(event));
-        eyeb_s_9.setOnMouseDragged(event -> drag(event));
-        eyeb_s_10.setOnMouseDragged(event -> drag(event));
-        eyeb_s_11.setOnMouseDragged(event -> drag(event));
-        eyeb_s_12.setOnMouseDragged(event -> drag(event));
-        
-        lips_s_1.setOnMouseDragged(event -> drag(event));
-        lips_s_2.setOnMouseDragged(event -> drag(event));
-        lips_s_3.setOnMouseDragged(event -> drag(event));
-        lips_s_4.setOnMouseDragged(event -> drag(event));
-        lips_s_5.setOnMouseDragged(event -> drag(event));
-        lips_s_6.setOnMouseDragged(event -> drag(event));
-        lips_s_7.setOnMouseDragged(event -> drag(event));
-        lips_s_8.setOnMouseDragged(event -> drag(event));
-        lips_s_9.setOnMouseDragged(event -> drag(event));
-        lips_s_10.setOnMouseDragged(event -> drag(event));
-        lips_s_11.setOnMouseDragged(event -> drag(event));
-        lips_s_12.setOnMouseDragged(event -> drag(event));
-        
-        nose_s_1.setOnMouseDragged(event -> drag(event));
-        nose_s_2.setOnMouseDragged(event -> drag(event));
-        nose_s_3.setOnMouseDragged(event -> drag(event));
-        nose_s_4.setOnMouseDragged(event -> drag(event));
-        nose_s_5.setOnMouseDragged(event -> drag(event));
-        nose_s_6.setOnMouseDragged(event -> drag(event));
-        nose_s_7.setOnMouseDragged(event -> drag(event));
-        nose_s_8.setOnMouseDragged(event -> drag(event));
-        nose_s_9.setOnMouseDragged(event -> drag(event));
-        nose_s_10.setOnMouseDragged(event -> drag(event));
-        nose_s_11.setOnMouseDragged(event -> drag(event));
-        nose_s_12.setOnMouseDragged(event -> drag(event));
-        
-        must_s_1.setOnMouseDragged(event -> drag(event));
-        must_s_2.setOnMouseDragged(event -> drag(event));
-        must_s_3.setOnMouseDragged(event -> drag(event));
-        must_s_4.setOnMouseDragged(event -> drag(event));
-        must_s_5.setOnMouseDragged(event -> drag(event));
-        must_s_6.setOnMouseDragged(event -> drag(event));
-        must_s_7.setOnMouseDragged(event -> drag(event));
-        must_s_8.setOnMouseDragged(event -> drag(event));
-        must_s_9.setOnMouseDragged(event -> drag(event));
-        must_s_10.setOnMouseDragged(event -> drag(event));
-        must_s_11.setOnMouseDragged(event -> drag(event));
-        must_s_12.setOnMouseDragged(event -> drag(event));
-        
-        more_s_1.setOnMouseDragged(event -> drag(event));
-        more_s_2.setOnMouseDragged(event -> drag(event));
-        more_s_3.setOnMouseDragged(event -> drag(event));
-        more_s_4.setOnMouseDragged(event -> drag(event));
-        more_s_5.setOnMouseDragged(event -> drag(event));
-        more_s_6.setOnMouseDragged(event -> drag(event));
+
+    private void drag(SketchManifest.Category category, MouseEvent event) {
+        if (category != dragCategory) {
+            return;
+        }
+        dragTargetX = dragStartX + event.getSceneX() - dragMouseX;
+        dragTargetY = dragStartY + event.getSceneY() - dragMouseY;
+        if (!dragPending) {
+            dragPending = true;
+            dragEventTime = System.nanoTime();
+        }
+        dragEvents++;
+    }
+
+    // Apply the latest drag position, at most once per pulse
+    private void applyDrag() {
+        if (!dragPending) {
+            return;
+        }
+        dragPending = false;
+        model.translate(dragCategory, dragTargetX, dragTargetY);
+        if (MEASURE_DRAG) {
+            long now = System.nanoTime();
+            dragLatency.record(now - dragEventTime);
+            if (lastDragFrame != 0) {
+                dragFrames.record(now - lastDragFrame);
+            }
+            lastDragFrame = now;
+        }
+    }
+
+    private void endDrag(SketchManifest.Category category) {
+        if (category != dragCategory) {
+            return;
+        }
+        applyDrag();
+        dragPulse.stop();
+        dragCategory = null;
+        model.endEdit();
+        canvasLayers.get(category).setCacheHint(CacheHint.QUALITY);
+        if (MEASURE_DRAG) {
+            LOGGER.info(String.format("Dragged %s: %d mouse events in %d frames; %s; %s", category.getId(),
+                    dragEvents, dragLatency.getCount(), dragLatency, dragFrames));
+        }
     }
 
     //Save Sketch to Image Code Class
@@ -593,18 +413,91 @@ public class DashboardController implements Initializable {
             FileChooser.ExtensionFilter extFilter;
             extFilter = new FileChooser.ExtensionFilter("PNG", "*.png");
             fileChooser.getExtensionFilters().add(extFilter);
-            Image snapshot = sketch.snapshot(null, null); //Convert Anchor Pane to image i.e. fx_id of anchorpane
+            fileChooser.getExtensionFilters().add(DESCRIPTOR_FILTER);
             File file = fileChooser.showSaveDialog(stage);
                        
             if (file != null) {
-                try {
-                    ImageIO.write(SwingFXUtils.fromFXImage(snapshot,null), "png", file);
-                } catch (IOException ex) {
-                    System.out.println(ex.getMessage());
+                if (fileChooser.getSelectedExtensionFilter() == DESCRIPTOR_FILTER
+                        || file.getName().toLowerCase().endsWith(SketchDescriptor.EXTENSION)) {
+                    saveDescriptor(file);
+                } else {
+                    export(file);
                 }
             }
     }
 
+    // Save just the element choices and offsets, so the sketch can be reopened and edited
+    private void saveDescriptor(File file) {
+        if (!file.getName().toLowerCase().endsWith(SketchDescriptor.EXTENSION)) {
+            file = new File(file.getParentFile(), file.getName() + SketchDescriptor.EXTENSION);
+        }
+        long start = System.nanoTime();
+        try {
+            SketchDescriptor.write(model.getState(), file.toPath());
+            save_status.setText(String.format("Saved %s in %d \u00b5s", file.getName(),
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)));
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to save sketch descriptor to " + file, ex);
+            save_status.setText("Save failed: " + ex.getMessage());
+        }
+    }
+
+    // Reopen a saved descriptor for editing; this is a single undoable edit
+    private void openDescriptor() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Open Sketch");
+        fileChooser.getExtensionFilters().add(DESCRIPTOR_FILTER);
+        File file = fileChooser.showOpenDialog(sketch.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            model.load(SketchDescriptor.read(file.toPath(), manifest));
+            save_status.setText(String.format("Opened %s in %d \u00b5s", file.getName(),
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)));
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to open sketch descriptor " + file, ex);
+            save_status.setText("Open failed: " + ex.getMessage());
+        }
+    }
+
+    // Render and write the sketch and its derivatives on a worker thread, showing progress under the canvas
+    private void export(File file) {
+        if (saving != null) {
+            saving.cancel();
+        }
+        SketchExportTask task = new SketchExportTask(SketchRenderer.shared(), PNG_ENCODER, RenderCache.shared(),
+                model.getState(), file, OUTPUT_SCALE);
+        task.setOnSucceeded(event -> finishSave(task, task.getMessage()));
+        task.setOnCancelled(event -> finishSave(task, "Save cancelled"));
+        task.setOnFailed(event -> {
+            LOGGER.log(Level.SEVERE, "Failed to save sketch to " + file, task.getException());
+            finishSave(task, "Save failed: " + task.getException().getMessage());
+        });
+        saving = task;
+        save_progress.progressProperty().bind(task.progressProperty());
+        save_status.textProperty().bind(task.messageProperty());
+        save_progress.setVisible(true);
+        save_cancel.setVisible(true);
+
+        Thread saver = new Thread(task, "sketch-save");
+        saver.setDaemon(true);
+        saver.start();
+    }
+
+    private void finishSave(SketchExportTask task, String status) {
+        if (saving != task) {
+            return;
+        }
+        saving = null;
+        save_progress.progressProperty().unbind();
+        save_status.textProperty().unbind();
+        save_status.setText(status);
+        save_progress.setVisible(false);
+        save_cancel.setVisible(false);
+    }
+
     @FXML //toolkit elements to show
     private void toolKit(MouseEvent event) {
         if(event.getSource()==head) {
@@ -680,6 +573,13 @@ public class DashboardController implements Initializable {
             mustach_elements.setVisible(false);
             more_elements.setVisible(true);
         }
+        for (Node pane : element_anchor.getChildren()) {
+            if (pane.isVisible()) {
+                showPalette((AnchorPane) pane, ((ImageView) event.getSource()).getImage());
+            } else {
+                releasePalette((AnchorPane) pane);
+            }
+        }
     }
 
     @FXML //Save the sketch to image
@@ -687,6 +587,18 @@ public class DashboardController implements Initializable {
         save_img(); //save image
     }
     
+    @FXML //Open a saved sketch descriptor
+    private void onOpen(MouseEvent event) {
+        openDescriptor();
+    }
+
+    @FXML //Stop the save in progress
+    private void onCancelSave(MouseEvent event) {
+        if (saving != null) {
+            saving.cancel();
+        }
+    }
+
     @FXML //Open the upload and compare page
     private void onCompare(MouseEvent event) {
 //        save_img(); //Save image
@@ -702,1318 +614,35 @@ public class DashboardController implements Initializable {
                 stage.resizableProperty().setValue(false); 
                 stage.show();
                 ((Node)(event.getSource())).getScene().getWindow().hide();
-                
+
+                // Match the sketch as composed, rendered in memory rather than saved and reopened
+                SketchState state = model.getState();
+                if (!state.isEmpty()) {
+                    Upload_sketchController upload = fxmlLoader.getController();
+                    upload.matchSketch(MatchSketch.of("sketch.png", state, SketchRenderer.shared()));
+                }
             } catch (IOException e) {
                 Logger logger = Logger.getLogger(getClass().getName());
+                logger.log(Level.SEVERE, "Failed to load the upload sketch page.", e);
             }
     }
 
     @FXML //Reset the sketch and delete all element
     private void onReset(MouseEvent event) {
-        head_s_1.setVisible(false);
-        head_s_2.setVisible(false);
-        head_s_3.setVisible(false);
-        head_s_4.setVisible(false);
-        head_s_5.setVisible(false);
-        head_s_6.setVisible(false);
-        head_s_7.setVisible(false);
-        head_s_8.setVisible(false);
-        head_s_9.setVisible(false);
-        head_s_10.setVisible(false);
-                
-        hair_s_1.setVisible(false);
-        hair_s_2.setVisible(false);
-        hair_s_3.setVisible(false);
-        hair_s_4.setVisible(false);
-        hair_s_5.setVisible(false);
-        hair_s_6.setVisible(false);
-        hair_s_7.setVisible(false);
-        hair_s_8.setVisible(false);
-        hair_s_9.setVisible(false);
-        hair_s_10.setVisible(false);
-        hair_s_11.setVisible(false);
-        hair_s_12.setVisible(false);
-                
-        eyes_s_1.setVisible(false);
-        eyes_s_2.setVisible(false);
-        eyes_s_3.setVisible(false);
-        eyes_s_4.setVisible(false);
-        eyes_s_5.setVisible(false);
-        eyes_s_6.setVisible(false);
-        eyes_s_7.setVisible(false);
-        eyes_s_8.setVisible(false);
-        eyes_s_9.setVisible(false);
-        eyes_s_10.setVisible(false);
-        eyes_s_11.setVisible(false);
-        eyes_s_12.setVisible(false);
-                
-        eyeb_s_1.setVisible(false);
-        eyeb_s_2.setVisible(false);
-        eyeb_s_3.setVisible(false);
-        eyeb_s_4.setVisible(false);
-        eyeb_s_5.setVisible(false);
-        eyeb_s_6.setVisible(false);
-        eyeb_s_7.setVisible(false);
-        eyeb_s_8.setVisible(false);
-        eyeb_s_9.setVisible(false);
-        eyeb_s_10.setVisible(false);
-        eyeb_s_11.setVisible(false);
-        eyeb_s_12.setVisible(false);
-                
-        lips_s_1.setVisible(false);
-        lips_s_2.setVisible(false);
-        lips_s_3.setVisible(false);
-        lips_s_4.setVisible(false);
-        lips_s_5.setVisible(false);
-        lips_s_6.setVisible(false);
-        lips_s_7.setVisible(false);
-        lips_s_8.setVisible(false);
-        lips_s_9.setVisible(false);
-        lips_s_10.setVisible(false);
-        lips_s_11.setVisible(false);
-        lips_s_12.setVisible(false);
-                
-        nose_s_1.setVisible(false);
-        nose_s_2.setVisible(false);
-        nose_s_3.setVisible(false);
-        nose_s_4.setVisible(false);
-        nose_s_5.setVisible(false);
-        nose_s_6.setVisible(false);
-        nose_s_7.setVisible(false);
-        nose_s_8.setVisible(false);
-        nose_s_9.setVisible(false);
-        nose_s_10.setVisible(false);
-        nose_s_11.setVisible(false);
-        nose_s_12.setVisible(false);
-                
-        must_s_1.setVisible(false);
-        must_s_2.setVisible(false);
-        must_s_3.setVisible(false);
-        must_s_4.setVisible(false);
-        must_s_5.setVisible(false);
-        must_s_6.setVisible(false);
-        must_s_7.setVisible(false);
-        must_s_8.setVisible(false);
-        must_s_9.setVisible(false);
-        must_s_10.setVisible(false);
-        must_s_11.setVisible(false);
-        must_s_12.setVisible(false);
-                
-        more_s_1.setVisible(false);
-        more_s_2.setVisible(false);
-        more_s_3.setVisible(false);
-        more_s_4.setVisible(false);
-        more_s_5.setVisible(false);
-        more_s_6.setVisible(false);
+        model.clearAll();
     }
 
-        // Select the Elements to Show on CANVAS
-        @FXML
-        private void onHeadSelect(MouseEvent event) {
-            if(event.getSource()==head_del) {
-                head_s_1.setVisible(false);
-                head_s_2.setVisible(false);
-                head_s_3.setVisible(false);
-                head_s_4.setVisible(false);
-                head_s_5.setVisible(false);
-                head_s_6.setVisible(false);
-                head_s_7.setVisible(false);
-                head_s_8.setVisible(false);
-                head_s_9.setVisible(false);
-                head_s_10.setVisible(false);
-            } else if(event.getSource()==head_e_1) {
-                head_s_1.setVisible(true);
-                head_s_2.setVisible(false);
-                head_s_3.setVisible(false);
-                head_s_4.setVisible(false);
-                head_s_5.setVisible(false);
-                head_s_6.setVisible(false);
-                head_s_7.setVisible(false);
-                head_s_8.setVisible(false);
-                head_s_9.setVisible(false);
-                head_s_10.setVisible(false);
-            } else if(event.getSource()==head_e_2) {
-                head_s_1.setVisible(false);
-                head_s_2.setVisible(true);
-                head_s_3.setVisible(false);
-                head_s_4.setVisible(false);
-                head_s_5.setVisible(false);
-                head_s_6.setVisible(false);
-                head_s_7.setVisible(false);
-                head_s_8.setVisible(false);
-                head_s_9.setVisible(false);
-                head_s_10.setVisible(false);
-            } else if(event.getSource()==head_e_3) {
-                head_s_1.setVisible(false);
-                head_s_2.setVisible(false);
-                head_s_3.setVisible(true);
-                head_s_4.setVisible(false);
-                head_s_5.setVisible(false);
-                head_s_6.setVisible(false);
-                head_s_7.setVisible(false);
-                head_s_8.setVisible(false);
-                head_s_9.setVisible(false);
-                head_s_10.setVisible(false);
-            } else if(event.getSource()==head_e_4) {
-                head_s_1.setVisible(false);
-                head_s_2.setVisible(false);
-                head_s_3.setVisible(false);
-                head_s_4.setVisible(true);
-                head_s_5.setVisible(false);
-                head_s_6.setVisible(false);
-                head_s_7.setVisible(false);
-                head_s_8.setVisible(false);
-                head_s_9.setVisible(false);
-                head_s_10.setVisible(false);
-            } else if(event.getSource()==head_e_5) {
-                head_s_1.setVisible(false);
-                head_s_2.setVisible(false);
-                head_s_3.setVisible(false);
-                head_s_4.setVisible(false);
-                head_s_5.setVisible(true);
-                head_s_6.setVisible(false);
-                head_s_7.setVisible(false);
-                head_s_8.setVisible(false);
-                head_s_9.setVisible(false);
-                head_s_10.setVisible(false);
-            } else if(event.getSource()==head_e_6) {
-                head_s_1.setVisible(false);
-                head_s_2.setVisible(false);
-                head_s_3.setVisible(false);
-                head_s_4.setVisible(false);
-                head_s_5.setVisible(false);
-                head_s_6.setVisible(true);
-                head_s_7.setVisible(false);
-                head_s_8.setVisible(false);
-                head_s_9.setVisible(false);
-                head_s_10.setVisible(false);
-            } else if(event.getSource()==head_e_7) {
-                head_s_1.setVisible(false);
-                head_s_2.setVisible(false);
-                head_s_3.setVisible(false);
-                head_s_4.setVisible(false);
-                head_s_5.setVisible(false);
-                head_s_6.setVisible(false);
-                head_s_7.setVisible(true);
-                head_s_8.setVisible(false);
-                head_s_9.setVisible(false);
-                head_s_10.setVisible(false);
-            } else if(event.getSource()==head_e_8) {
-                head_s_1.setVisible(false);
-                head_s_2.setVisible(false);
-                head_s_3.setVisible(false);
-                head_s_4.setVisible(false);
-                head_s_5.setVisible(false);
-                head_s_6.setVisible(false);
-                head_s_7.setVisible(false);
-                head_s_8.setVisible(true);
-                head_s_9.setVisible(false);
-                head_s_10.setVisible(false);
-            } else if(event.getSource()==head_e_9) {
-                head_s_1.setVisible(false);
-                head_s_2.setVisible(false);
-                head_s_3.setVisible(false);
-                head_s_4.setVisible(false);
-                head_s_5.setVisible(false);
-                head_s_6.setVisible(false);
-                head_s_7.setVisible(false);
-                head_s_8.setVisible(false);
-                head_s_9.setVisible(true);
-                head_s_10.setVisible(false);
-            } else if(event.getSource()==head_e_10) {
-                head_s_1.setVisible(false);
-                head_s_2.setVisible(false);
-                head_s_3.setVisible(false);
-                head_s_4.setVisible(false);
-                head_s_5.setVisible(false);
-                head_s_6.setVisible(false);
-                head_s_7.setVisible(false);
-                head_s_8.setVisible(false);
-                head_s_9.setVisible(false);
-                head_s_10.setVisible(true);
+    @FXML //Delete the elements picked from the pane the button belongs to
+    private void onDelete(MouseEvent event) {
+        String paneId = ((Node) event.getSource()).getParent().getId();
+        paneId = paneId.substring(0, paneId.lastIndexOf("_elements"));
+        model.beginEdit();
+        try {
+            for (SketchManifest.Category category : manifest.getCategoriesInPane(paneId)) {
+                model.clear(category);
             }
+        } finally {
+            model.endEdit();
         }
-
-        @FXML
-        private void onHairSelect(MouseEvent event) {
-            if(event.getSource()==hair_del) {
-                hair_s_1.setVisible(false);
-                hair_s_2.setVisible(false);
-                hair_s_3.setVisible(false);
-                hair_s_4.setVisible(false);
-                hair_s_5.setVisible(false);
-                hair_s_6.setVisible(false);
-                hair_s_7.setVisible(false);
-                hair_s_8.setVisible(false);
-                hair_s_9.setVisible(false);
-                hair_s_10.setVisible(false);
-                hair_s_11.setVisible(false);
-                hair_s_12.setVisible(false);
-            } else if(event.getSource()==hair_e_1) {
-                hair_s_1.setVisible(true);
-                hair_s_2.setVisible(false);
-                hair_s_3.setVisible(false);
-                hair_s_4.setVisible(false);
-                hair_s_5.setVisible(false);
-                hair_s_6.setVisible(false);
-                hair_s_7.setVisible(false);
-                hair_s_8.setVisible(false);
-                hair_s_9.setVisible(false);
-                hair_s_10.setVisible(false);
-                hair_s_11.setVisible(false);
-                hair_s_12.setVisible(false);
-            } else if(event.getSource()==hair_e_2) {
-                hair_s_1.setVisible(false);
-                hair_s_2.setVisible(true);
-                hair_s_3.setVisible(false);
-                hair_s_4.setVisible(false);
-                hair_s_5.setVisible(false);
-                hair_s_6.setVisible(false);
-                hair_s_7.setVisible(false);
-                hair_s_8.setVisible(false);
-                hair_s_9.setVisible(false);
-                hair_s_10.setVisible(false);
-                hair_s_11.setVisible(false);
-                hair_s_12.setVisible(false);
-            } else if(event.getSource()==hair_e_3) {
-                hair_s_1.setVisible(false);
-                hair_s_2.setVisible(false);
-                hair_s_3.setVisible(true);
-                hair_s_4.setVisible(false);
-                hair_s_5.setVisible(false);
-                hair_s_6.setVisible(false);
-                hair_s_7.setVisible(false);
-                hair_s_8.setVisible(false);
-                hair_s_9.setVisible(false);
-                hair_s_10.setVisible(false);
-                hair_s_11.setVisible(false);
-                hair_s_12.setVisible(false);
-            } else if(event.getSource()==hair_e_4) {
-                hair_s_1.setVisible(false);
-                hair_s_2.setVisible(false);
-                hair_s_3.setVisible(false);
-                hair_s_4.setVisible(true);
-                hair_s_5.setVisible(false);
-                hair_s_6.setVisible(false);
-                hair_s_7.setVisible(false);
-                hair_s_8.setVisible(false);
-                hair_s_9.setVisible(false);
-                hair_s_10.setVisible(false);
-                hair_s_11.setVisible(false);
-                hair_s_12.setVisible(false);
-            } else if(event.getSource()==hair_e_5) {
-                hair_s_1.setVisible(false);
-                hair_s_2.setVisible(false);
-                hair_s_3.setVisible(false);
-                hair_s_4.setVisible(false);
-                hair_s_5.setVisible(true);
-                hair_s_6.setVisible(false);
-                hair_s_7.setVisible(false);
-                hair_s_8.setVisible(false);
-                hair_s_9.setVisible(false);
-                hair_s_10.setVisible(false);
-                hair_s_11.setVisible(false);
-                hair_s_12.setVisible(false);
-            } else if(event.getSource()==hair_e_6) {
-                hair_s_1.setVisible(false);
-                hair_s_2.setVisible(false);
-                hair_s_3.setVisible(false);
-                hair_s_4.setVisible(false);
-                hair_s_5.setVisible(false);
-                hair_s_6.setVisible(true);
-                hair_s_7.setVisible(false);
-                hair_s_8.setVisible(false);
-                hair_s_9.setVisible(false);
-                hair_s_10.setVisible(false);
-                hair_s_11.setVisible(false);
-                hair_s_12.setVisible(false);
-            } else if(event.getSource()==hair_e_7) {
-                hair_s_1.setVisible(false);
-                hair_s_2.setVisible(false);
-                hair_s_3.setVisible(false);
-                hair_s_4.setVisible(false);
-                hair_s_5.setVisible(false);
-                hair_s_6.setVisible(false);
-                hair_s_7.setVisible(true);
-                hair_s_8.setVisible(false);
-                hair_s_9.setVisible(false);
-                hair_s_10.setVisible(false);
-                hair_s_11.setVisible(false);
-                hair_s_12.setVisible(false);
-            } else if(event.getSource()==hair_e_8) {
-                hair_s_1.setVisible(false);
-                hair_s_2.setVisible(false);
-                hair_s_3.setVisible(false);
-                hair_s_4.setVisible(false);
-                hair_s_5.setVisible(false);
-                hair_s_6.setVisible(false);
-                hair_s_7.setVisible(false);
-                hair_s_8.setVisible(true);
-                hair_s_9.setVisible(false);
-                hair_s_10.setVisible(false);
-                hair_s_11.setVisible(false);
-                hair_s_12.setVisible(false);
-            } else if(event.getSource()==hair_e_9) {
-                hair_s_1.setVisible(false);
-                hair_s_2.setVisible(false);
-                hair_s_3.setVisible(false);
-                hair_s_4.setVisible(false);
-                hair_s_5.setVisible(false);
-                hair_s_6.setVisible(false);
-                hair_s_7.setVisible(false);
-                hair_s_8.setVisible(false);
-                hair_s_9.setVisible(true);
-                hair_s_10.setVisible(false);
-                hair_s_11.setVisible(false);
-                hair_s_12.setVisible(false);
-            } else if(event.getSource()==hair_e_10) {
-                hair_s_1.setVisible(false);
-                hair_s_2.setVisible(false);
-                hair_s_3.setVisible(false);
-                hair_s_4.setVisible(false);
-                hair_s_5.setVisible(false);
-                hair_s_6.setVisible(false);
-                hair_s_7.setVisible(false);
-                hair_s_8.setVisible(false);
-                hair_s_9.setVisible(false);
-                hair_s_10.setVisible(true);
-                hair_s_11.setVisible(false);
-                hair_s_12.setVisible(false);
-            } else if(event.getSource()==hair_e_11) {
-                hair_s_1.setVisible(false);
-                hair_s_2.setVisible(false);
-                hair_s_3.setVisible(false);
-                hair_s_4.setVisible(false);
-                hair_s_5.setVisible(false);
-                hair_s_6.setVisible(false);
-                hair_s_7.setVisible(false);
-                hair_s_8.setVisible(false);
-                hair_s_9.setVisible(false);
-                hair_s_10.setVisible(false);
-                hair_s_11.setVisible(true);
-                hair_s_12.setVisible(false);
-            } else if(event.getSource()==hair_e_12) {
-                hair_s_1.setVisible(false);
-                hair_s_2.setVisible(false);
-                hair_s_3.setVisible(false);
-                hair_s_4.setVisible(false);
-                hair_s_5.setVisible(false);
-                hair_s_6.setVisible(false);
-                hair_s_7.setVisible(false);
-                hair_s_8.setVisible(false);
-                hair_s_9.setVisible(false);
-                hair_s_10.setVisible(false);
-                hair_s_11.setVisible(false);
-                hair_s_12.setVisible(true);
-            } 
-        }
-
-        @FXML
-        private void onEyesSelect(MouseEvent event) {
-            if(event.getSource()==eyes_del) {
-                eyes_s_1.setVisible(false);
-                eyes_s_2.setVisible(false);
-                eyes_s_3.setVisible(false);
-                eyes_s_4.setVisible(false);
-                eyes_s_5.setVisible(false);
-                eyes_s_6.setVisible(false);
-                eyes_s_7.setVisible(false);
-                eyes_s_8.setVisible(false);
-                eyes_s_9.setVisible(false);
-                eyes_s_10.setVisible(false);
-                eyes_s_11.setVisible(false);
-                eyes_s_12.setVisible(false);
-            } else if(event.getSource()==eyes_e_1) {
-                eyes_s_1.setVisible(true);
-                eyes_s_2.setVisible(false);
-                eyes_s_3.setVisible(false);
-                eyes_s_4.setVisible(false);
-                eyes_s_5.setVisible(false);
-                eyes_s_6.setVisible(false);
-                eyes_s_7.setVisible(false);
-                eyes_s_8.setVisible(false);
-                eyes_s_9.setVisible(false);
-                eyes_s_10.setVisible(false);
-                eyes_s_11.setVisible(false);
-                eyes_s_12.setVisible(false);
-            } else if(event.getSource()==eyes_e_2) {
-                eyes_s_1.setVisible(false);
-                eyes_s_2.setVisible(true);
-                eyes_s_3.setVisible(false);
-                eyes_s_4.setVisible(false);
-                eyes_s_5.setVisible(false);
-                eyes_s_6.setVisible(false);
-                eyes_s_7.setVisible(false);
-                eyes_s_8.setVisible(false);
-                eyes_s_9.setVisible(false);
-                eyes_s_10.setVisible(false);
-                eyes_s_11.setVisible(false);
-                eyes_s_12.setVisible(false);
-            } else if(event.getSource()==eyes_e_3) {
-                eyes_s_1.setVisible(false);
-                eyes_s_2.setVisible(false);
-                eyes_s_3.setVisible(true);
-                eyes_s_4.setVisible(false);
-                eyes_s_5.setVisible(false);
-                eyes_s_6.setVisible(false);
-                eyes_s_7.setVisible(false);
-                eyes_s_8.setVisible(false);
-                eyes_s_9.setVisible(false);
-                eyes_s_10.setVisible(false);
-                eyes_s_11.setVisible(false);
-                eyes_s_12.setVisible(false);
-            } else if(event.getSource()==eyes_e_4) {
-                eyes_s_1.setVisible(false);
-                eyes_s_2.setVisible(false);
-                eyes_s_3.setVisible(false);
-                eyes_s_4.setVisible(false);
-                eyes_s_5.setVisible(false);
-                eyes_s_6.setVisible(false);
-                eyes_s_7.setVisible(false);
-                eyes_s_8.setVisible(false);
-                eyes_s_9.setVisible(false);
-                eyes_s_10.setVisible(false);
-                eyes_s_11.setVisible(false);
-                eyes_s_12.setVisible(false);
-            } else if(event.getSource()==eyes_e_5) {
-                eyes_s_1.setVisible(false);
-                eyes_s_2.setVisible(false);
-                eyes_s_3.setVisible(false);
-                eyes_s_4.setVisible(false);
-                eyes_s_5.setVisible(true);
-                eyes_s_6.setVisible(false);
-                eyes_s_7.setVisible(false);
-                eyes_s_8.setVisible(false);
-                eyes_s_9.setVisible(false);
-                eyes_s_10.setVisible(false);
-                eyes_s_11.setVisible(false);
-                eyes_s_12.setVisible(false);
-            } else if(event.getSource()==eyes_e_6) {
-                eyes_s_1.setVisible(false);
-                eyes_s_2.setVisible(false);
-                eyes_s_3.setVisible(false);
-                eyes_s_4.setVisible(false);
-                eyes_s_5.setVisible(false);
-                eyes_s_6.setVisible(true);
-                eyes_s_7.setVisible(false);
-                eyes_s_8.setVisible(false);
-                eyes_s_9.setVisible(false);
-                eyes_s_10.setVisible(false);
-                eyes_s_11.setVisible(false);
-                eyes_s_12.setVisible(false);
-            } else if(event.getSource()==eyes_e_7) {
-                eyes_s_1.setVisible(false);
-                eyes_s_2.setVisible(false);
-                eyes_s_3.setVisible(false);
-                eyes_s_4.setVisible(false);
-                eyes_s_5.setVisible(false);
-                eyes_s_6.setVisible(false);
-                eyes_s_7.setVisible(true);
-                eyes_s_8.setVisible(false);
-                eyes_s_9.setVisible(false);
-                eyes_s_10.setVisible(false);
-                eyes_s_11.setVisible(false);
-                eyes_s_12.setVisible(false);
-            } else if(event.getSource()==eyes_e_8) {
-                eyes_s_1.setVisible(false);
-                eyes_s_2.setVisible(false);
-                eyes_s_3.setVisible(false);
-                eyes_s_4.setVisible(false);
-                eyes_s_5.setVisible(false);
-                eyes_s_6.setVisible(false);
-                eyes_s_7.setVisible(false);
-                eyes_s_8.setVisible(true);
-                eyes_s_9.setVisible(false);
-                eyes_s_10.setVisible(false);
-                eyes_s_11.setVisible(false);
-                eyes_s_12.setVisible(false);
-            } else if(event.getSource()==eyes_e_9) {
-                eyes_s_1.setVisible(false);
-                eyes_s_2.setVisible(false);
-                eyes_s_3.setVisible(false);
-                eyes_s_4.setVisible(false);
-                eyes_s_5.setVisible(false);
-                eyes_s_6.setVisible(false);
-                eyes_s_7.setVisible(false);
-                eyes_s_8.setVisible(false);
-                eyes_s_9.setVisible(true);
-                eyes_s_10.setVisible(false);
-                eyes_s_11.setVisible(false);
-                eyes_s_12.setVisible(false);
-            } else if(event.getSource()==eyes_e_10) {
-                eyes_s_1.setVisible(false);
-                eyes_s_2.setVisible(false);
-                eyes_s_3.setVisible(false);
-                eyes_s_4.setVisible(false);
-                eyes_s_5.setVisible(false);
-                eyes_s_6.setVisible(false);
-                eyes_s_7.setVisible(false);
-                eyes_s_8.setVisible(false);
-                eyes_s_9.setVisible(false);
-                eyes_s_10.setVisible(true);
-                eyes_s_11.setVisible(false);
-                eyes_s_12.setVisible(false);
-            } else if(event.getSource()==eyes_e_11) {
-                eyes_s_1.setVisible(false);
-                eyes_s_2.setVisible(false);
-                eyes_s_3.setVisible(false);
-                eyes_s_4.setVisible(false);
-                eyes_s_5.setVisible(false);
-                eyes_s_6.setVisible(false);
-                eyes_s_7.setVisible(false);
-                eyes_s_8.setVisible(false);
-                eyes_s_9.setVisible(false);
-                eyes_s_10.setVisible(false);
-                eyes_s_11.setVisible(true);
-                eyes_s_12.setVisible(false);
-            } else if(event.getSource()==eyes_e_12) {
-                eyes_s_1.setVisible(false);
-                eyes_s_2.setVisible(false);
-                eyes_s_3.setVisible(false);
-                eyes_s_4.setVisible(true);
-                eyes_s_5.setVisible(false);
-                eyes_s_6.setVisible(false);
-                eyes_s_7.setVisible(false);
-                eyes_s_8.setVisible(false);
-                eyes_s_9.setVisible(false);
-                eyes_s_10.setVisible(false);
-                eyes_s_11.setVisible(false);
-                eyes_s_12.setVisible(true);
-            } 
-        }
-
-        @FXML
-        private void onEyeBSelect(MouseEvent event) {
-            if(event.getSource()==eyeb_del) {
-                eyeb_s_1.setVisible(false);
-                eyeb_s_2.setVisible(false);
-                eyeb_s_3.setVisible(false);
-                eyeb_s_4.setVisible(false);
-                eyeb_s_5.setVisible(false);
-                eyeb_s_6.setVisible(false);
-                eyeb_s_7.setVisible(false);
-                eyeb_s_8.setVisible(false);
-                eyeb_s_9.setVisible(false);
-                eyeb_s_10.setVisible(false);
-                eyeb_s_11.setVisible(false);
-                eyeb_s_12.setVisible(false);
-            } else if(event.getSource()==eyeb_e_1) {
-                eyeb_s_1.setVisible(true);
-                eyeb_s_2.setVisible(false);
-                eyeb_s_3.setVisible(false);
-                eyeb_s_4.setVisible(false);
-                eyeb_s_5.setVisible(false);
-                eyeb_s_6.setVisible(false);
-                eyeb_s_7.setVisible(false);
-                eyeb_s_8.setVisible(false);
-                eyeb_s_9.setVisible(false);
-                eyeb_s_10.setVisible(false);
-                eyeb_s_11.setVisible(false);
-                eyeb_s_12.setVisible(false);
-            } else if(event.getSource()==eyeb_e_2) {
-                eyeb_s_1.setVisible(false);
-                eyeb_s_2.setVisible(true);
-                eyeb_s_3.setVisible(false);
-                eyeb_s_4.setVisible(false);
-                eyeb_s_5.setVisible(false);
-                eyeb_s_6.setVisible(false);
-                eyeb_s_7.setVisible(false);
-                eyeb_s_8.setVisible(false);
-                eyeb_s_9.setVisible(false);
-                eyeb_s_10.setVisible(false);
-                eyeb_s_11.setVisible(false);
-                eyeb_s_12.setVisible(false);
-            } else if(event.getSource()==eyeb_e_3) {
-                 eyeb_s_1.setVisible(false);
-                eyeb_s_2.setVisible(false);
-                eyeb_s_3.setVisible(true);
-                eyeb_s_4.setVisible(false);
-                eyeb_s_5.setVisible(false);
-                eyeb_s_6.setVisible(false);
-                eyeb_s_7.setVisible(false);
-                eyeb_s_8.setVisible(false);
-                eyeb_s_9.setVisible(false);
-                eyeb_s_10.setVisible(false);
-                eyeb_s_11.setVisible(false);
-                eyeb_s_12.setVisible(false);
-            } else if(event.getSource()==eyeb_e_4) {
-                 eyeb_s_1.setVisible(false);
-                eyeb_s_2.setVisible(false);
-                eyeb_s_3.setVisible(false);
-                eyeb_s_4.setVisible(true);
-                eyeb_s_5.setVisible(false);
-                eyeb_s_6.setVisible(false);
-                eyeb_s_7.setVisible(false);
-                eyeb_s_8.setVisible(false);
-                eyeb_s_9.setVisible(false);
-                eyeb_s_10.setVisible(false);
-                eyeb_s_11.setVisible(false);
-                eyeb_s_12.setVisible(false);
-            } else if(event.getSource()==eyeb_e_5) {
-                 eyeb_s_1.setVisible(false);
-                eyeb_s_2.setVisible(false);
-                eyeb_s_3.setVisible(false);
-                eyeb_s_4.setVisible(false);
-                eyeb_s_5.setVisible(true);
-                eyeb_s_6.setVisible(false);
-                eyeb_s_7.setVisible(false);
-                eyeb_s_8.setVisible(false);
-                eyeb_s_9.setVisible(false);
-                eyeb_s_10.setVisible(false);
-                eyeb_s_11.setVisible(false);
-                eyeb_s_12.setVisible(false);
-            } else if(event.getSource()==eyeb_e_6) {
-                 eyeb_s_1.setVisible(false);
-                eyeb_s_2.setVisible(false);
-                eyeb_s_3.setVisible(false);
-                eyeb_s_4.setVisible(false);
-                eyeb_s_5.setVisible(false);
-                eyeb_s_6.setVisible(true);
-                eyeb_s_7.setVisible(false);
-                eyeb_s_8.setVisible(false);
-                eyeb_s_9.setVisible(false);
-                eyeb_s_10.setVisible(false);
-                eyeb_s_11.setVisible(false);
-                eyeb_s_12.setVisible(false);
-            } else if(event.getSource()==eyeb_e_7) {
-                 eyeb_s_1.setVisible(false);
-                eyeb_s_2.setVisible(false);
-                eyeb_s_3.setVisible(false);
-                eyeb_s_4.setVisible(false);
-                eyeb_s_5.setVisible(false);
-                eyeb_s_6.setVisible(false);
-                eyeb_s_7.setVisible(true);
-                eyeb_s_8.setVisible(false);
-                eyeb_s_9.setVisible(false);
-                eyeb_s_10.setVisible(false);
-                eyeb_s_11.setVisible(false);
-                eyeb_s_12.setVisible(false);
-            } else if(event.getSource()==eyeb_e_8) {
-                 eyeb_s_1.setVisible(false);
-                eyeb_s_2.setVisible(false);
-                eyeb_s_3.setVisible(false);
-                eyeb_s_4.setVisible(false);
-                eyeb_s_5.setVisible(false);
-                eyeb_s_6.setVisible(false);
-                eyeb_s_7.setVisible(false);
-                eyeb_s_8.setVisible(true);
-                eyeb_s_9.setVisible(false);
-                eyeb_s_10.setVisible(false);
-                eyeb_s_11.setVisible(false);
-                eyeb_s_12.setVisible(false);
-            } else if(event.getSource()==eyeb_e_9) {
-                 eyeb_s_1.setVisible(false);
-                eyeb_s_2.setVisible(false);
-                eyeb_s_3.setVisible(false);
-                eyeb_s_4.setVisible(false);
-                eyeb_s_5.setVisible(false);
-                eyeb_s_6.setVisible(false);
-                eyeb_s_7.setVisible(false);
-                eyeb_s_8.setVisible(false);
-                eyeb_s_9.setVisible(true);
-                eyeb_s_10.setVisible(false);
-                eyeb_s_11.setVisible(false);
-                eyeb_s_12.setVisible(false);
-            } else if(event.getSource()==eyeb_e_10) {
-                 eyeb_s_1.setVisible(false);
-                eyeb_s_2.setVisible(false);
-                eyeb_s_3.setVisible(false);
-                eyeb_s_4.setVisible(false);
-                eyeb_s_5.setVisible(false);
-                eyeb_s_6.setVisible(false);
-                eyeb_s_7.setVisible(false);
-                eyeb_s_8.setVisible(false);
-                eyeb_s_9.setVisible(false);
-                eyeb_s_10.setVisible(true);
-                eyeb_s_11.setVisible(false);
-                eyeb_s_12.setVisible(false);
-            } else if(event.getSource()==eyeb_e_11) {
-                 eyeb_s_1.setVisible(false);
-                eyeb_s_2.setVisible(false);
-                eyeb_s_3.setVisible(false);
-                eyeb_s_4.setVisible(false);
-                eyeb_s_5.setVisible(false);
-                eyeb_s_6.setVisible(false);
-                eyeb_s_7.setVisible(false);
-                eyeb_s_8.setVisible(false);
-                eyeb_s_9.setVisible(false);
-                eyeb_s_10.setVisible(false);
-                eyeb_s_11.setVisible(true);
-                eyeb_s_12.setVisible(false);
-            } else if(event.getSource()==eyeb_e_12) {
-                 eyeb_s_1.setVisible(false);
-                eyeb_s_2.setVisible(false);
-                eyeb_s_3.setVisible(false);
-                eyeb_s_4.setVisible(false);
-                eyeb_s_5.setVisible(false);
-                eyeb_s_6.setVisible(false);
-                eyeb_s_7.setVisible(false);
-                eyeb_s_8.setVisible(false);
-                eyeb_s_9.setVisible(false);
-                eyeb_s_10.setVisible(false);
-                eyeb_s_11.setVisible(false);
-                eyeb_s_12.setVisible(true);
-            } 
-        }
-
-        @FXML
-        private void onNoseSelect(MouseEvent event) {
-            if(event.getSource()==nose_del) {
-                nose_s_1.setVisible(false);
-                nose_s_2.setVisible(false);
-                nose_s_3.setVisible(false);
-                nose_s_4.setVisible(false);
-                nose_s_5.setVisible(false);
-                nose_s_6.setVisible(false);
-                nose_s_7.setVisible(false);
-                nose_s_8.setVisible(false);
-                nose_s_9.setVisible(false);
-                nose_s_10.setVisible(false);
-                nose_s_11.setVisible(false);
-                nose_s_12.setVisible(false);
-            } else if(event.getSource()==nose_e_1) {
-                nose_s_1.setVisible(true);
-                nose_s_2.setVisible(false);
-                nose_s_3.setVisible(false);
-                nose_s_4.setVisible(false);
-                nose_s_5.setVisible(false);
-                nose_s_6.setVisible(false);
-                nose_s_7.setVisible(false);
-                nose_s_8.setVisible(false);
-                nose_s_9.setVisible(false);
-                nose_s_10.setVisible(false);
-                nose_s_11.setVisible(false);
-                nose_s_12.setVisible(false);
-            } else if(event.getSource()==nose_e_2) {
-                nose_s_1.setVisible(false);
-                nose_s_2.setVisible(true);
-                nose_s_3.setVisible(false);
-                nose_s_4.setVisible(false);
-                nose_s_5.setVisible(false);
-                nose_s_6.setVisible(false);
-                nose_s_7.setVisible(false);
-                nose_s_8.setVisible(false);
-                nose_s_9.setVisible(false);
-                nose_s_10.setVisible(false);
-                nose_s_11.setVisible(false);
-                nose_s_12.setVisible(false);
-            } else if(event.getSource()==nose_e_3) {
-                nose_s_1.setVisible(false);
-                nose_s_2.setVisible(false);
-                nose_s_3.setVisible(true);
-                nose_s_4.setVisible(false);
-                nose_s_5.setVisible(false);
-                nose_s_6.setVisible(false);
-                nose_s_7.setVisible(false);
-                nose_s_8.setVisible(false);
-                nose_s_9.setVisible(false);
-                nose_s_10.setVisible(false);
-                nose_s_11.setVisible(false);
-                nose_s_12.setVisible(false);
-            } else if(event.getSource()==nose_e_4) {
-                nose_s_1.setVisible(false);
-                nose_s_2.setVisible(false);
-                nose_s_3.setVisible(false);
-                nose_s_4.setVisible(true);
-                nose_s_5.setVisible(false);
-                nose_s_6.setVisible(false);
-                nose_s_7.setVisible(false);
-                nose_s_8.setVisible(false);
-                nose_s_9.setVisible(false);
-                nose_s_10.setVisible(false);
-                nose_s_11.setVisible(false);
-                nose_s_12.setVisible(false);
-            } else if(event.getSource()==nose_e_5) {
-                nose_s_1.setVisible(false);
-                nose_s_2.setVisible(false);
-                nose_s_3.setVisible(false);
-                nose_s_4.setVisible(false);
-                nose_s_5.setVisible(true);
-                nose_s_6.setVisible(false);
-                nose_s_7.setVisible(false);
-                nose_s_8.setVisible(false);
-                nose_s_9.setVisible(false);
-                nose_s_10.setVisible(false);
-                nose_s_11.setVisible(false);
-                nose_s_12.setVisible(false);
-            } else if(event.getSource()==nose_e_6) {
-                nose_s_1.setVisible(false);
-                nose_s_2.setVisible(false);
-                nose_s_3.setVisible(false);
-                nose_s_4.setVisible(false);
-                nose_s_5.setVisible(false);
-                nose_s_6.setVisible(true);
-                nose_s_7.setVisible(false);
-                nose_s_8.setVisible(false);
-                nose_s_9.setVisible(false);
-                nose_s_10.setVisible(false);
-                nose_s_11.setVisible(false);
-                nose_s_12.setVisible(false);
-            } else if(event.getSource()==nose_e_7) {
-                nose_s_1.setVisible(false);
-                nose_s_2.setVisible(false);
-                nose_s_3.setVisible(false);
-                nose_s_4.setVisible(false);
-                nose_s_5.setVisible(false);
-                nose_s_6.setVisible(false);
-                nose_s_7.setVisible(true);
-                nose_s_8.setVisible(false);
-                nose_s_9.setVisible(false);
-                nose_s_10.setVisible(false);
-                nose_s_11.setVisible(false);
-                nose_s_12.setVisible(false);
-            } else if(event.getSource()==nose_e_8) {
-                nose_s_1.setVisible(false);
-                nose_s_2.setVisible(false);
-                nose_s_3.setVisible(false);
-                nose_s_4.setVisible(false);
-                nose_s_5.setVisible(false);
-                nose_s_6.setVisible(false);
-                nose_s_7.setVisible(false);
-                nose_s_8.setVisible(true);
-                nose_s_9.setVisible(false);
-                nose_s_10.setVisible(false);
-                nose_s_11.setVisible(false);
-                nose_s_12.setVisible(false);
-            } else if(event.getSource()==nose_e_9) {
-                nose_s_1.setVisible(false);
-                nose_s_2.setVisible(false);
-                nose_s_3.setVisible(false);
-                nose_s_4.setVisible(false);
-                nose_s_5.setVisible(false);
-                nose_s_6.setVisible(false);
-                nose_s_7.setVisible(false);
-                nose_s_8.setVisible(false);
-                nose_s_9.setVisible(true);
-                nose_s_10.setVisible(false);
-                nose_s_11.setVisible(false);
-                nose_s_12.setVisible(false);
-            } else if(event.getSource()==nose_e_10) {
-                nose_s_1.setVisible(false);
-                nose_s_2.setVisible(false);
-                nose_s_3.setVisible(false);
-                nose_s_4.setVisible(false);
-                nose_s_5.setVisible(false);
-                nose_s_6.setVisible(false);
-                nose_s_7.setVisible(false);
-                nose_s_8.setVisible(false);
-                nose_s_9.setVisible(false);
-                nose_s_10.setVisible(true);
-                nose_s_11.setVisible(false);
-                nose_s_12.setVisible(false);
-            } else if(event.getSource()==nose_e_11) {
-                nose_s_1.setVisible(false);
-                nose_s_2.setVisible(false);
-                nose_s_3.setVisible(false);
-                nose_s_4.setVisible(false);
-                nose_s_5.setVisible(false);
-                nose_s_6.setVisible(false);
-                nose_s_7.setVisible(false);
-                nose_s_8.setVisible(false);
-                nose_s_9.setVisible(false);
-                nose_s_10.setVisible(false);
-                nose_s_11.setVisible(true);
-                nose_s_12.setVisible(false);
-            } else if(event.getSource()==nose_e_12) {
-                nose_s_1.setVisible(false);
-                nose_s_2.setVisible(false);
-                nose_s_3.setVisible(false);
-                nose_s_4.setVisible(false);
-                nose_s_5.setVisible(false);
-                nose_s_6.setVisible(false);
-                nose_s_7.setVisible(false);
-                nose_s_8.setVisible(false);
-                nose_s_9.setVisible(false);
-                nose_s_10.setVisible(false);
-                nose_s_11.setVisible(false);
-                nose_s_12.setVisible(true);
-            } 
-        }
-
-        @FXML
-        private void onLipsSelect(MouseEvent event) {
-            if(event.getSource()==lips_del) {
-                lips_s_1.setVisible(false);
-                lips_s_2.setVisible(false);
-                lips_s_3.setVisible(false);
-                lips_s_4.setVisible(false);
-                lips_s_5.setVisible(false);
-                lips_s_6.setVisible(false);
-                lips_s_7.setVisible(false);
-                lips_s_8.setVisible(false);
-                lips_s_9.setVisible(false);
-                lips_s_10.setVisible(false);
-                lips_s_11.setVisible(false);
-                lips_s_12.setVisible(false);
-            } else if(event.getSource()==lips_e_1) {
-                lips_s_1.setVisible(true);
-                lips_s_2.setVisible(false);
-                lips_s_3.setVisible(false);
-                lips_s_4.setVisible(false);
-                lips_s_5.setVisible(false);
-                lips_s_6.setVisible(false);
-                lips_s_7.setVisible(false);
-                lips_s_8.setVisible(false);
-                lips_s_9.setVisible(false);
-                lips_s_10.setVisible(false);
-                lips_s_11.setVisible(false);
-                lips_s_12.setVisible(false);
-            } else if(event.getSource()==lips_e_2) {
-                lips_s_1.setVisible(false);
-                lips_s_2.setVisible(true);
-                lips_s_3.setVisible(false);
-                lips_s_4.setVisible(false);
-                lips_s_5.setVisible(false);
-                lips_s_6.setVisible(false);
-                lips_s_7.setVisible(false);
-                lips_s_8.setVisible(false);
-                lips_s_9.setVisible(false);
-                lips_s_10.setVisible(false);
-                lips_s_11.setVisible(false);
-                lips_s_12.setVisible(false);
-            } else if(event.getSource()==lips_e_3) {
-                lips_s_1.setVisible(false);
-                lips_s_2.setVisible(false);
-                lips_s_3.setVisible(true);
-                lips_s_4.setVisible(false);
-                lips_s_5.setVisible(false);
-                lips_s_6.setVisible(false);
-                lips_s_7.setVisible(false);
-                lips_s_8.setVisible(false);
-                lips_s_9.setVisible(false);
-                lips_s_10.setVisible(false);
-                lips_s_11.setVisible(false);
-                lips_s_12.setVisible(false);
-            } else if(event.getSource()==lips_e_4) {
-                lips_s_1.setVisible(false);
-                lips_s_2.setVisible(false);
-                lips_s_3.setVisible(false);
-                lips_s_4.setVisible(true);
-                lips_s_5.setVisible(false);
-                lips_s_6.setVisible(false);
-                lips_s_7.setVisible(false);
-                lips_s_8.setVisible(false);
-                lips_s_9.setVisible(false);
-                lips_s_10.setVisible(false);
-                lips_s_11.setVisible(false);
-                lips_s_12.setVisible(false);
-            } else if(event.getSource()==lips_e_5) {
-                lips_s_1.setVisible(false);
-                lips_s_2.setVisible(false);
-                lips_s_3.setVisible(false);
-                lips_s_4.setVisible(false);
-                lips_s_5.setVisible(true);
-                lips_s_6.setVisible(false);
-                lips_s_7.setVisible(false);
-                lips_s_8.setVisible(false);
-                lips_s_9.setVisible(false);
-                lips_s_10.setVisible(false);
-                lips_s_11.setVisible(false);
-                lips_s_12.setVisible(false);
-            } else if(event.getSource()==lips_e_6) {
-                lips_s_1.setVisible(false);
-                lips_s_2.setVisible(false);
-                lips_s_3.setVisible(false);
-                lips_s_4.setVisible(false);
-                lips_s_5.setVisible(false);
-                lips_s_6.setVisible(true);
-                lips_s_7.setVisible(false);
-                lips_s_8.setVisible(false);
-                lips_s_9.setVisible(false);
-                lips_s_10.setVisible(false);
-                lips_s_11.setVisible(false);
-                lips_s_12.setVisible(false);
-            } else if(event.getSource()==lips_e_7) {
-                lips_s_1.setVisible(false);
-                lips_s_2.setVisible(false);
-                lips_s_3.setVisible(false);
-                lips_s_4.setVisible(false);
-                lips_s_5.setVisible(false);
-                lips_s_6.setVisible(false);
-                lips_s_7.setVisible(true);
-                lips_s_8.setVisible(false);
-                lips_s_9.setVisible(false);
-                lips_s_10.setVisible(false);
-                lips_s_11.setVisible(false);
-                lips_s_12.setVisible(false);
-            } else if(event.getSource()==lips_e_8) {
-                lips_s_1.setVisible(false);
-                lips_s_2.setVisible(false);
-                lips_s_3.setVisible(false);
-                lips_s_4.setVisible(false);
-                lips_s_5.setVisible(false);
-                lips_s_6.setVisible(false);
-                lips_s_7.setVisible(false);
-                lips_s_8.setVisible(true);
-                lips_s_9.setVisible(false);
-                lips_s_10.setVisible(false);
-                lips_s_11.setVisible(false);
-                lips_s_12.setVisible(false);
-            } else if(event.getSource()==lips_e_9) {
-                lips_s_1.setVisible(false);
-                lips_s_2.setVisible(false);
-                lips_s_3.setVisible(false);
-                lips_s_4.setVisible(false);
-                lips_s_5.setVisible(false);
-                lips_s_6.setVisible(false);
-                lips_s_7.setVisible(false);
-                lips_s_8.setVisible(false);
-                lips_s_9.setVisible(true);
-                lips_s_10.setVisible(false);
-                lips_s_11.setVisible(false);
-                lips_s_12.setVisible(false);
-            } else if(event.getSource()==lips_e_10) {
-                lips_s_1.setVisible(false);
-                lips_s_2.setVisible(false);
-                lips_s_3.setVisible(false);
-                lips_s_4.setVisible(false);
-                lips_s_5.setVisible(false);
-                lips_s_6.setVisible(false);
-                lips_s_7.setVisible(false);
-                lips_s_8.setVisible(false);
-                lips_s_9.setVisible(false);
-                lips_s_10.setVisible(true);
-                lips_s_11.setVisible(false);
-                lips_s_12.setVisible(false);
-            } else if(event.getSource()==lips_e_11) {
-                lips_s_1.setVisible(false);
-                lips_s_2.setVisible(false);
-                lips_s_3.setVisible(false);
-                lips_s_4.setVisible(false);
-                lips_s_5.setVisible(false);
-                lips_s_6.setVisible(false);
-                lips_s_7.setVisible(false);
-                lips_s_8.setVisible(false);
-                lips_s_9.setVisible(false);
-                lips_s_10.setVisible(false);
-                lips_s_11.setVisible(true);
-                lips_s_12.setVisible(false);
-            } else if(event.getSource()==lips_e_12) {
-                lips_s_1.setVisible(false);
-                lips_s_2.setVisible(false);
-                lips_s_3.setVisible(false);
-                lips_s_4.setVisible(false);
-                lips_s_5.setVisible(false);
-                lips_s_6.setVisible(false);
-                lips_s_7.setVisible(false);
-                lips_s_8.setVisible(false);
-                lips_s_9.setVisible(false);
-                lips_s_10.setVisible(false);
-                lips_s_11.setVisible(false);
-                lips_s_12.setVisible(true);
-            } 
-        }
-
-        @FXML
-        private void onMustSelect(MouseEvent event) {
-            if(event.getSource()==must_del) {
-                must_s_1.setVisible(false);
-                must_s_2.setVisible(false);
-                must_s_3.setVisible(false);
-                must_s_4.setVisible(false);
-                must_s_5.setVisible(false);
-                must_s_6.setVisible(false);
-                must_s_7.setVisible(false);
-                must_s_8.setVisible(false);
-                must_s_9.setVisible(false);
-                must_s_10.setVisible(false);
-                must_s_11.setVisible(false);
-                must_s_12.setVisible(false);
-            } else if(event.getSource()==must_e_1) {
-                must_s_1.setVisible(true);
-                must_s_2.setVisible(false);
-                must_s_3.setVisible(false);
-                must_s_4.setVisible(false);
-                must_s_5.setVisible(false);
-                must_s_6.setVisible(false);
-                must_s_7.setVisible(false);
-                must_s_8.setVisible(false);
-                must_s_9.setVisible(false);
-                must_s_10.setVisible(false);
-                must_s_11.setVisible(false);
-                must_s_12.setVisible(false);
-            } else if(event.getSource()==must_e_2) {
-                must_s_1.setVisible(false);
-                must_s_2.setVisible(true);
-                must_s_3.setVisible(false);
-                must_s_4.setVisible(false);
-                must_s_5.setVisible(false);
-                must_s_6.setVisible(false);
-                must_s_7.setVisible(false);
-                must_s_8.setVisible(false);
-                must_s_9.setVisible(false);
-                must_s_10.setVisible(false);
-                must_s_11.setVisible(false);
-                must_s_12.setVisible(false);
-            } else if(event.getSource()==must_e_3) {
-                must_s_1.setVisible(false);
-                must_s_2.setVisible(false);
-                must_s_3.setVisible(true);
-                must_s_4.setVisible(false);
-                must_s_5.setVisible(false);
-                must_s_6.setVisible(false);
-                must_s_7.setVisible(false);
-                must_s_8.setVisible(false);
-                must_s_9.setVisible(false);
-                must_s_10.setVisible(false);
-                must_s_11.setVisible(false);
-                must_s_12.setVisible(false);
-            } else if(event.getSource()==must_e_4) {
-                must_s_1.setVisible(false);
-                must_s_2.setVisible(false);
-                must_s_3.setVisible(false);
-                must_s_4.setVisible(true);
-                must_s_5.setVisible(false);
-                must_s_6.setVisible(false);
-                must_s_7.setVisible(false);
-                must_s_8.setVisible(false);
-                must_s_9.setVisible(false);
-                must_s_10.setVisible(false);
-                must_s_11.setVisible(false);
-                must_s_12.setVisible(false);
-            } else if(event.getSource()==must_e_5) {
-                must_s_1.setVisible(false);
-                must_s_2.setVisible(false);
-                must_s_3.setVisible(false);
-                must_s_4.setVisible(false);
-                must_s_5.setVisible(true);
-                must_s_6.setVisible(false);
-                must_s_7.setVisible(false);
-                must_s_8.setVisible(false);
-                must_s_9.setVisible(false);
-                must_s_10.setVisible(false);
-                must_s_11.setVisible(false);
-                must_s_12.setVisible(false);
-            } else if(event.getSource()==must_e_6) {
-                must_s_1.setVisible(false);
-                must_s_2.setVisible(false);
-                must_s_3.setVisible(false);
-                must_s_4.setVisible(false);
-                must_s_5.setVisible(false);
-                must_s_6.setVisible(true);
-                must_s_7.setVisible(false);
-                must_s_8.setVisible(false);
-                must_s_9.setVisible(false);
-                must_s_10.setVisible(false);
-                must_s_11.setVisible(false);
-                must_s_12.setVisible(false);
-            } else if(event.getSource()==must_e_7) {
-                must_s_1.setVisible(false);
-                must_s_2.setVisible(false);
-                must_s_3.setVisible(false);
-                must_s_4.setVisible(false);
-                must_s_5.setVisible(false);
-                must_s_6.setVisible(false);
-                must_s_7.setVisible(true);
-                must_s_8.setVisible(false);
-                must_s_9.setVisible(false);
-                must_s_10.setVisible(false);
-                must_s_11.setVisible(false);
-                must_s_12.setVisible(false);
-            } else if(event.getSource()==must_e_8) {
-                must_s_1.setVisible(false);
-                must_s_2.setVisible(false);
-                must_s_3.setVisible(false);
-                must_s_4.setVisible(false);
-                must_s_5.setVisible(false);
-                must_s_6.setVisible(false);
-                must_s_7.setVisible(false);
-                must_s_8.setVisible(true);
-                must_s_9.setVisible(false);
-                must_s_10.setVisible(false);
-                must_s_11.setVisible(false);
-                must_s_12.setVisible(false);
-            } else if(event.getSource()==must_e_9) {
-                must_s_1.setVisible(false);
-                must_s_2.setVisible(false);
-                must_s_3.setVisible(false);
-                must_s_4.setVisible(false);
-                must_s_5.setVisible(false);
-                must_s_6.setVisible(false);
-                must_s_7.setVisible(false);
-                must_s_8.setVisible(false);
-                must_s_9.setVisible(true);
-                must_s_10.setVisible(false);
-                must_s_11.setVisible(false);
-                must_s_12.setVisible(false);
-            } else if(event.getSource()==must_e_10) {
-                must_s_1.setVisible(false);
-                must_s_2.setVisible(false);
-                must_s_3.setVisible(false);
-                must_s_4.setVisible(false);
-                must_s_5.setVisible(false);
-                must_s_6.setVisible(false);
-                must_s_7.setVisible(false);
-                must_s_8.setVisible(false);
-                must_s_9.setVisible(false);
-                must_s_10.setVisible(true);
-                must_s_11.setVisible(false);
-                must_s_12.setVisible(false);
-            } else if(event.getSource()==must_e_11) {
-                must_s_1.setVisible(false);
-                must_s_2.setVisible(false);
-                must_s_3.setVisible(false);
-                must_s_4.setVisible(false);
-                must_s_5.setVisible(false);
-                must_s_6.setVisible(false);
-                must_s_7.setVisible(false);
-                must_s_8.setVisible(false);
-                must_s_9.setVisible(false);
-                must_s_10.setVisible(false);
-                must_s_11.setVisible(true);
-                must_s_12.setVisible(false);
-            } else if(event.getSource()==must_e_12) {
-                must_s_1.setVisible(false);
-                must_s_2.setVisible(false);
-                must_s_3.setVisible(false);
-                must_s_4.setVisible(false);
-                must_s_5.setVisible(false);
-                must_s_6.setVisible(false);
-                must_s_7.setVisible(false);
-                must_s_8.setVisible(false);
-                must_s_9.setVisible(false);
-                must_s_10.setVisible(false);
-                must_s_11.setVisible(false);
-                must_s_12.setVisible(true);
-            } 
-        }
-
-        @FXML
-        private void onMoreSelect(MouseEvent event) {
-            if(event.getSource()==more_del) {
-                more_s_1.setVisible(false);
-                more_s_2.setVisible(false);
-                more_s_3.setVisible(false);
-                more_s_4.setVisible(false);
-                more_s_5.setVisible(false);
-                more_s_6.setVisible(false);
-            } else if(event.getSource()==more_e_1) {
-                more_s_1.setVisible(true);
-                more_s_2.setVisible(false);
-                more_s_3.setVisible(false);
-                more_s_4.setVisible(false);
-            } else if(event.getSource()==more_e_2) {
-                more_s_1.setVisible(true);
-                more_s_2.setVisible(true);
-                more_s_3.setVisible(false);
-                more_s_4.setVisible(false);
-            } else if(event.getSource()==more_e_3) {
-                more_s_1.setVisible(false);
-                more_s_2.setVisible(false);
-                more_s_3.setVisible(true);
-                more_s_4.setVisible(false);
-            } else if(event.getSource()==more_e_4) {
-                more_s_1.setVisible(false);
-                more_s_2.setVisible(false);
-                more_s_3.setVisible(true);
-                more_s_4.setVisible(true);
-            } else if(event.getSource()==more_e_5) {
-                more_s_5.setVisible(true);
-                more_s_6.setVisible(false);
-            } else if(event.getSource()==more_e_6) {
-                more_s_5.setVisible(false);
-                more_s_6.setVisible(true);
-            } 
-        }
-    
+    }
 }
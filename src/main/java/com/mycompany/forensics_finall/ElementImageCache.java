@@ -0,0 +1,197 @@
+package com.mycompany.forensics_finall;
+
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.scene.image.Image;
+
+/**
+ * Shared cache of decoded sketch element images.
+ *
+ * Images are kept strongly in LRU order up to a byte budget (set with the
+ * {@code forensics.elementCache.bytes} system property). Entries pushed out of
+ * the budget are kept softly, so they can still be reused until the garbage
+ * collector needs the memory.
+ *
+ * The cache is used from the FX thread only.
+ */
+public class ElementImageCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ElementImageCache.class.getName());
+
+    public static final long DEFAULT_BUDGET = 32L * 1024 * 1024;
+
+    private static final ElementImageCache SHARED =
+            new ElementImageCache(Long.getLong("forensics.elementCache.bytes", DEFAULT_BUDGET));
+
+    /** Which rendition of an element an image is. */
+    public enum Variant {
+        THUMBNAIL, LAYER
+    }
+
+    /**
+     * Cache key: element category, index within the category and rendition.
+     * Elements drawn from several canvas layers number them with {@code part}.
+     */
+    public static final class Key {
+        private final String category;
+        private final int index;
+        private final Variant variant;
+        private final int part;
+
+        public Key(String category, int index, Variant variant) {
+            this(category, index, variant, 0);
+        }
+
+        public Key(String category, int index, Variant variant, int part) {
+            this.category = category;
+            this.index = index;
+            this.variant = variant;
+            this.part = part;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return index == other.index && part == other.part && variant == other.variant
+                    && category.equals(other.category);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(category, index, variant, part);
+        }
+
+        @Override
+        public String toString() {
+            return category + "/" + index + "/" + variant + (part == 0 ? "" : "/" + part);
+        }
+    }
+
+    private final long budget;
+    private final LinkedHashMap<Key, Image> images = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<Key, Long> sizes = new HashMap<>();
+    private final Map<Key, SoftReference<Image>> evicted = new HashMap<>();
+    private long bytes;
+
+    private long hits;
+    private long softHits;
+    private long misses;
+    private long evictions;
+
+    public ElementImageCache(long budget) {
+        this.budget = budget;
+    }
+
+    public static ElementImageCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the image for an element, starting a background decode on a miss.
+     * Thumbnails can be decoded at a smaller size by passing the size they are
+     * displayed at; pass 0 to decode at full size.
+     *
+     * @return the image, possibly still loading, or null if the resource is missing
+     */
+    public Image get(Key key, String path, double width, double height) {
+        Image image = images.get(key);
+        if (image != null) {
+            hits++;
+            return image;
+        }
+        SoftReference<Image> ref = evicted.remove(key);
+        image = ref == null ? null : ref.get();
+        if (image != null) {
+            softHits++;
+            put(key, image);
+            return image;
+        }
+        misses++;
+        URL resource = getClass().getResource(path);
+        if (resource == null) {
+            LOGGER.warning("Missing sketch element: " + path);
+            return null;
+        }
+        Image loading = new Image(resource.toExternalForm(), width, height, true, true, true);
+        images.put(key, loading);
+        loading.progressProperty().addListener((obs, oldProgress, progress) -> {
+            if (progress.doubleValue() >= 1.0) {
+                if (loading.isError()) {
+                    LOGGER.log(Level.WARNING, "Failed to load sketch element " + path, loading.getException());
+                    images.remove(key, loading);
+                } else if (images.get(key) == loading) {
+                    account(key, loading);
+                }
+            }
+        });
+        return loading;
+    }
+
+    private void put(Key key, Image image) {
+        images.put(key, image);
+        if (image.getProgress() >= 1.0) {
+            account(key, image);
+        }
+    }
+
+    // Record the decoded size of an entry and trim the cache back to its budget
+    private void account(Key key, Image image) {
+        long size = (long) image.getWidth() * (long) image.getHeight() * 4;
+        Long previous = sizes.put(key, size);
+        bytes += size - (previous == null ? 0 : previous);
+
+        Iterator<Map.Entry<Key, Image>> eldest = images.entrySet().iterator();
+        while (bytes > budget && eldest.hasNext()) {
+            Map.Entry<Key, Image> entry = eldest.next();
+            if (entry.getKey().equals(key)) {
+                continue;
+            }
+            eldest.remove();
+            Long evictedSize = sizes.remove(entry.getKey());
+            bytes -= evictedSize == null ? 0 : evictedSize;
+            evicted.put(entry.getKey(), new SoftReference<>(entry.getValue()));
+            evictions++;
+        }
+        evicted.values().removeIf(ref -> ref.get() == null);
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getSoftHits() {
+        return softHits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d entries, %d/%d KB, %d hits, %d soft hits, %d misses, %d evictions",
+                images.size(), bytes / 1024, budget / 1024, hits, softHits, misses, evictions);
+    }
+}
@@ -0,0 +1,255 @@
+package com.mycompany.forensics_finall;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+
+/**
+ * Wraps an engine so a backend that is down, restarting or throttling fails
+ * fast instead of holding every analyst on a socket.
+ *
+ * <ul>
+ * <li>Timeouts follow the backend's observed latency: a call gets
+ * {@code timeoutFactor} times its recent {@code timeoutPercentile} latency,
+ * never less than {@code minTimeoutMillis} and never more than
+ * {@code maxTimeoutMillis}, which also applies until enough calls have been
+ * timed. Matches and version checks are timed separately.</li>
+ * <li>Timeouts, refused connections, 5xx, 429 and errors the AWS SDK deems
+ * retryable count as failures of the backend and go to a
+ * {@link CircuitBreaker}. A refusal, such as a 400 for a bad image, means
+ * the backend is up. Errors before the request left, such as a sketch that
+ * cannot be read, tell the breaker nothing.</li>
+ * <li>A call that times out, or that the caller cancels, is aborted rather
+ * than left running on the backend.</li>
+ * <li>Such failures are retried up to {@code retries} times after a jittered
+ * exponential backoff, unless the breaker has opened meanwhile. Both calls
+ * are idempotent: a match only reads the gallery, and the AWS engine
+ * overwrites the same S3 key.</li>
+ * </ul>
+ */
+public class GuardedMatchEngine implements MatchEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(GuardedMatchEngine.class.getName());
+
+    // Calls timed before the percentile is trusted, and how many recent ones it is taken over
+    private static final int MIN_SAMPLES = 20;
+    private static final int WINDOW = 200;
+    private static final long BACKOFF_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 2000;
+
+    private final MatchEngine engine;
+    private final CircuitBreaker breaker;
+    private final int retries;
+    private final double timeoutPercentile;
+    private final double timeoutFactor;
+    private final long minTimeoutMillis;
+    private final long maxTimeoutMillis;
+    private final LatencyRecorder matchLatency;
+    private final LatencyRecorder versionLatency;
+
+    public GuardedMatchEngine(MatchEngine engine, CircuitBreaker breaker, int retries, double timeoutPercentile,
+            double timeoutFactor, long minTimeoutMillis, long maxTimeoutMillis) {
+        this.engine = engine;
+        this.breaker = breaker;
+        this.retries = retries;
+        this.timeoutPercentile = timeoutPercentile;
+        this.timeoutFactor = timeoutFactor;
+        this.minTimeoutMillis = minTimeoutMillis;
+        this.maxTimeoutMillis = maxTimeoutMillis;
+        this.matchLatency = new LatencyRecorder(engine.getName() + " match", WINDOW);
+        this.versionLatency = new LatencyRecorder(engine.getName() + " version", WINDOW);
+    }
+
+    public MatchEngine getEngine() {
+        return engine;
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    @Override
+    public String getName() {
+        return engine.getName();
+    }
+
+    @Override
+    public String backend() {
+        return engine.backend();
+    }
+
+    @Override
+    public CompletableFuture<String> galleryVersion() {
+        return call("version check", engine::galleryVersion, versionLatency);
+    }
+
+    @Override
+    public CompletableFuture<Answer> match(MatchSketch sketch, int topK, double minSimilarity,
+            DoubleConsumer progress) {
+        return call("match of " + sketch, () -> engine.match(sketch, topK, minSimilarity, progress), matchLatency);
+    }
+
+    @Override
+    public URI photoUri(String imageId) {
+        return engine.photoUri(imageId);
+    }
+
+    @Override
+    public URI photoDownloadUri(String imageId) {
+        return engine.photoDownloadUri(imageId);
+    }
+
+    /** How long the next call timed by this recorder may take, in milliseconds. */
+    long timeoutMillis(LatencyRecorder latency) {
+        if (latency.getCount() < MIN_SAMPLES) {
+            return maxTimeoutMillis;
+        }
+        long observed = (long) (TimeUnit.NANOSECONDS.toMillis(latency.percentile(timeoutPercentile)) * timeoutFactor);
+        return Math.max(minTimeoutMillis, Math.min(maxTimeoutMillis, observed));
+    }
+
+    public long getMatchTimeoutMillis() {
+        return timeoutMillis(matchLatency);
+    }
+
+    private <T> CompletableFuture<T> call(String what, Supplier<CompletableFuture<T>> request,
+            LatencyRecorder latency) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<T>> inFlight = new AtomicReference<>();
+        // Giving up on the call aborts the attempt in flight, not just the wait for it
+        result.whenComplete((value, error) -> {
+            CompletableFuture<T> pending = inFlight.get();
+            if (result.isCancelled() && pending != null) {
+                pending.cancel(true);
+            }
+        });
+        attempt(what, request, latency, result, inFlight, 1);
+        return result;
+    }
+
+    private <T> void attempt(String what, Supplier<CompletableFuture<T>> request, LatencyRecorder latency,
+            CompletableFuture<T> result, AtomicReference<CompletableFuture<T>> inFlight, int attempt) {
+        // Cancelled by the caller while backing off
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            breaker.acquire();
+        } catch (CircuitBreaker.CircuitOpenException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        long timeout = timeoutMillis(latency);
+        long start = System.nanoTime();
+        CompletableFuture<T> pending;
+        try {
+            pending = request.get();
+        } catch (RuntimeException e) {
+            pending = CompletableFuture.failedFuture(e);
+        }
+        inFlight.set(pending);
+        // Cancelled by the caller while the request was being made
+        if (result.isCancelled()) {
+            pending.cancel(true);
+        }
+        CompletableFuture<T> sent = pending;
+        sent.thenApply(value -> value)
+                .orTimeout(timeout, TimeUnit.MILLISECONDS)
+                .whenComplete((value, error) -> {
+                    if (error == null) {
+                        breaker.onSuccess();
+                        latency.record(System.nanoTime() - start);
+                        result.complete(value);
+                        return;
+                    }
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof TimeoutException) {
+                        // Abort the request too, so a slow backend is not left with it on top of the retry
+                        sent.cancel(true);
+                        cause = new HttpTimeoutException(engine.getName() + " did not answer within " + timeout + " ms");
+                    }
+                    if (cause instanceof CancellationException || result.isDone()) {
+                        breaker.onAbandoned();
+                        result.completeExceptionally(cause);
+                        return;
+                    }
+                    if (!isTransient(cause)) {
+                        // A refusal means the backend is up; a failure before reaching it says nothing about it
+                        if (isAnswer(cause)) {
+                            breaker.onSuccess();
+                        } else {
+                            breaker.onAbandoned();
+                        }
+                        result.completeExceptionally(cause);
+                        return;
+                    }
+                    breaker.onFailure();
+                    if (attempt > retries || breaker.getState() != CircuitBreaker.State.CLOSED) {
+                        result.completeExceptionally(cause);
+                        return;
+                    }
+                    long delay = backoffMillis(attempt);
+                    LOGGER.info(engine.getName() + " " + what + " failed (" + cause + "), retry " + attempt
+                            + " of " + retries + " in " + delay + " ms");
+                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                            .execute(() -> attempt(what, request, latency, result, inFlight, attempt + 1));
+                });
+    }
+
+    // Full jitter, so analysts retrying together do not hit a recovering backend together
+    static long backoffMillis(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BACKOFF_MILLIS << Math.min(attempt - 1, 16));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Whether a failure says the backend is down or overloaded, rather than
+     * that the request was wrong or never left this machine: a connect or
+     * read timeout, a refused connection, a 5xx or 429, or an error the AWS
+     * SDK deems retryable or a throttle.
+     */
+    public static boolean isTransient(Throwable error) {
+        if (error instanceof MatchApiClient.StatusException) {
+            int status = ((MatchApiClient.StatusException) error).getStatusCode();
+            return status >= 500 || status == 429;
+        }
+        if (error instanceof SdkServiceException && ((SdkServiceException) error).isThrottlingException()) {
+            return true;
+        }
+        if (error instanceof SdkException) {
+            return ((SdkException) error).retryable();
+        }
+        return error instanceof HttpTimeoutException || error instanceof ConnectException;
+    }
+
+    // The backend answered, if only to refuse the request
+    static boolean isAnswer(Throwable error) {
+        return error instanceof MatchApiClient.StatusException || error instanceof SdkServiceException;
+    }
+
+    static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return breaker + ", match timeout " + getMatchTimeoutMillis() + " ms, " + matchLatency;
+    }
+}
@@ -0,0 +1,222 @@
+package com.mycompany.forensics_finall;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Sends each sketch to a primary engine and, if it has not answered within
+ * its usual latency, the same sketch to a secondary one. Whichever answers
+ * first wins; the other request is cancelled. A slow or overloaded primary then
+ * costs at most the hedge delay plus the secondary's latency.
+ *
+ * The hedge delay is the primary's {@code percentile} latency (default p95)
+ * over its recent answers, so only the slowest few requests are duplicated. A
+ * primary beaten by the secondary counts as having taken as long as the race,
+ * a lower bound that keeps slow requests in the percentile.
+ * Until enough answers have been seen it is {@code initialDelayMillis}. If
+ * the primary fails outright the secondary is asked at once.
+ *
+ * Cached results and the gallery version are the primary's.
+ */
+public class HedgedMatchEngine implements MatchEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(HedgedMatchEngine.class.getName());
+
+    // Answers needed before the percentile is trusted, and how many recent ones it is taken over
+    private static final int MIN_SAMPLES = 20;
+    private static final int MAX_SAMPLES = 1000;
+    // Never hedge sooner than this, however fast the primary usually is
+    private static final long MIN_DELAY_MILLIS = 50;
+
+    private final MatchEngine primary;
+    private final MatchEngine secondary;
+    private final double percentile;
+    private final long initialDelayMillis;
+    private final LatencyRecorder primaryLatency;
+
+    private long requests;
+    private long hedged;
+    private long secondaryWins;
+
+    public HedgedMatchEngine(MatchEngine primary, MatchEngine secondary, double percentile, long initialDelayMillis) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.percentile = percentile;
+        this.initialDelayMillis = initialDelayMillis;
+        this.primaryLatency = new LatencyRecorder(primary.getName(), MAX_SAMPLES);
+    }
+
+    @Override
+    public String getName() {
+        return primary.getName() + "+" + secondary.getName();
+    }
+
+    public MatchEngine getPrimary() {
+        return primary;
+    }
+
+    public MatchEngine getSecondary() {
+        return secondary;
+    }
+
+    @Override
+    public String backend() {
+        return primary.backend();
+    }
+
+    @Override
+    public CompletableFuture<String> galleryVersion() {
+        return primary.galleryVersion();
+    }
+
+    /** How long the primary gets before the secondary is asked too, in milliseconds. */
+    public long hedgeDelayMillis() {
+        if (primaryLatency.getCount() < MIN_SAMPLES) {
+            return initialDelayMillis;
+        }
+        return Math.max(MIN_DELAY_MILLIS, TimeUnit.NANOSECONDS.toMillis(primaryLatency.percentile(percentile)));
+    }
+
+    @Override
+    public CompletableFuture<Answer> match(MatchSketch sketch, int topK, double minSimilarity,
+            DoubleConsumer progress) {
+        synchronized (this) {
+            requests++;
+        }
+        Race race = new Race(sketch, topK, minSimilarity, hedgeDelayMillis());
+        long start = System.nanoTime();
+        race.track(ask(primary, sketch, topK, minSimilarity, progress)).whenComplete((answer, error) -> {
+            if (error == null) {
+                primaryLatency.record(System.nanoTime() - start);
+                race.answered(answer, null);
+            } else {
+                // Beaten by the secondary: the primary would have taken at least this long. Leaving it out
+                // would cut the samples off at the hedge delay and pull the delay lower every time.
+                if (race.wonByHedge()) {
+                    primaryLatency.record(System.nanoTime() - start);
+                }
+                race.failed(error);
+            }
+        });
+        CompletableFuture.delayedExecutor(race.delay, TimeUnit.MILLISECONDS)
+                .execute(() -> race.hedge("has not answered within " + race.delay + " ms"));
+        return race.answer;
+    }
+
+    // A sketch sent to the primary, and maybe the secondary
+    private final class Race {
+        final CompletableFuture<Answer> answer = new CompletableFuture<>();
+        final List<CompletableFuture<Answer>> calls = new CopyOnWriteArrayList<>();
+        final MatchSketch sketch;
+        final int topK;
+        final double minSimilarity;
+        final long delay;
+        boolean hedgeSent;
+        int failures;
+        long hedgeStart;
+
+        Race(MatchSketch sketch, int topK, double minSimilarity, long delay) {
+            this.sketch = sketch;
+            this.topK = topK;
+            this.minSimilarity = minSimilarity;
+            this.delay = delay;
+            // Once there is an answer, or the caller has given up, nothing else still asked is needed
+            answer.whenComplete((won, error) -> calls.forEach(call -> call.cancel(true)));
+        }
+
+        CompletableFuture<Answer> track(CompletableFuture<Answer> call) {
+            calls.add(call);
+            if (answer.isDone()) {
+                call.cancel(true);
+            }
+            return call;
+        }
+
+        synchronized boolean wonByHedge() {
+            return hedgeSent && answer.isDone() && !answer.isCompletedExceptionally();
+        }
+
+        void hedge(String reason) {
+            synchronized (this) {
+                if (hedgeSent || answer.isDone()) {
+                    return;
+                }
+                hedgeSent = true;
+                hedgeStart = System.nanoTime();
+            }
+            synchronized (HedgedMatchEngine.this) {
+                hedged++;
+            }
+            LOGGER.info(primary.getName() + " " + reason + " for " + sketch + ", asking " + secondary.getName());
+            // Only the primary's upload drives the progress bar
+            track(ask(secondary, sketch, topK, minSimilarity, fraction -> { })).whenComplete((answer, error) -> {
+                if (error == null) {
+                    answered(answer, secondary);
+                } else {
+                    failed(error);
+                }
+            });
+        }
+
+        void answered(Answer won, MatchEngine hedge) {
+            if (hedge != null && answer.complete(new Answer(won.getEngine(), won.getMatches(),
+                    won.getGalleryVersion(), "hedged to " + hedge.getName() + ", " + won.getReport(),
+                    won.getSentBytes()))) {
+                synchronized (HedgedMatchEngine.this) {
+                    secondaryWins++;
+                }
+                LOGGER.info(hedge.getName() + " answered " + sketch + " first, "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - hedgeStart) + " ms after the hedge; "
+                        + HedgedMatchEngine.this);
+            } else if (hedge == null) {
+                answer.complete(won);
+            }
+        }
+
+        void failed(Throwable error) {
+            boolean hedgeNow;
+            synchronized (this) {
+                failures++;
+                // Both engines failed; the last error is the one reported
+                if (failures == 2) {
+                    answer.completeExceptionally(error);
+                    return;
+                }
+                hedgeNow = !hedgeSent;
+            }
+            if (hedgeNow) {
+                hedge("failed (" + error + ")");
+            }
+        }
+    }
+
+    private static CompletableFuture<Answer> ask(MatchEngine engine, MatchSketch sketch, int topK,
+            double minSimilarity, DoubleConsumer progress) {
+        try {
+            return engine.match(sketch, topK, minSimilarity, progress);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public URI photoUri(String imageId) {
+        return primary.photoUri(imageId);
+    }
+
+    @Override
+    public URI photoDownloadUri(String imageId) {
+        return primary.photoDownloadUri(imageId);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s: %d requests, %d hedged to %s, %d answered by it first, hedge delay %d ms",
+                getName(), requests, hedged, secondary.getName(), secondaryWins, hedgeDelayMillis());
+    }
+}
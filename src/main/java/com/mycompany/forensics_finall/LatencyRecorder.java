@@ -0,0 +1,82 @@
+package com.mycompany.forensics_finall;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects latency samples and summarizes them as percentiles. With a window,
+ * only the most recent samples are kept, so the percentiles follow the
+ * current load. Safe to record into from several threads.
+ */
+public class LatencyRecorder {
+
+    private final String name;
+    private final int window;
+    private long[] samples = new long[256];
+    private int count;
+    // Next slot to overwrite once the window is full
+    private int next;
+
+    public LatencyRecorder(String name) {
+        this(name, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param window how many of the latest samples to keep
+     */
+    public LatencyRecorder(String name, int window) {
+        this.name = name;
+        this.window = window;
+    }
+
+    public synchronized void record(long nanos) {
+        if (count == window) {
+            samples[next] = nanos;
+            next = (next + 1) % window;
+            return;
+        }
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, (int) Math.min((long) count * 2, window));
+        }
+        samples[count++] = nanos;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized void clear() {
+        count = 0;
+        next = 0;
+    }
+
+    /** The sample at the given percentile (0-100), in nanoseconds; 0 if nothing was recorded. */
+    public synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, rank))];
+    }
+
+    public synchronized long mean() {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += samples[i];
+        }
+        return count == 0 ? 0 : total / count;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s: n=%d mean=%.2f p50=%.2f p95=%.2f p99=%.2f max=%.2f ms", name, count,
+                millis(mean()), millis(percentile(50)), millis(percentile(95)), millis(percentile(99)),
+                millis(percentile(100)));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,234 @@
+package com.mycompany.forensics_finall;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
+import org.json.JSONObject;
+
+/**
+ * Client for the sketch matching API ({@code Forensics/forensicsapi.py}).
+ *
+ * One {@link HttpClient} is shared by every request, so connections are kept
+ * alive and reused between matches, and HTTP/2 is used where the server offers
+ * it. Sketches are streamed as multipart/form-data with a random
+ * boundary. All calls are asynchronous, so any number of requests can be
+ * in flight at once, and cancelling a match aborts its exchange.
+ */
+public class MatchApiClient {
+
+    private static final MatchApiClient SHARED = new MatchApiClient(
+            URI.create(System.getProperty("forensics.match.apiUrl", "http://localhost:5000/")),
+            Duration.ofMillis(Integer.getInteger("forensics.match.connectTimeoutMs", 5000)),
+            Duration.ofMillis(Integer.getInteger("forensics.match.readTimeoutMs", 60000)));
+
+    private final URI baseUri;
+    private final Duration requestTimeout;
+    private final HttpClient client;
+    private final long versionTtl = TimeUnit.SECONDS.toNanos(Long.getLong("forensics.match.versionTtlSeconds", 60));
+    private volatile CompletableFuture<String> version;
+    private volatile long versionChecked;
+
+    public MatchApiClient(URI baseUri, Duration connectTimeout, Duration requestTimeout) {
+        this.baseUri = baseUri;
+        this.requestTimeout = requestTimeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.valueOf(System.getProperty("forensics.match.httpVersion", "HTTP_2")))
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    public static MatchApiClient shared() {
+        return SHARED;
+    }
+
+    public URI getBaseUri() {
+        return baseUri;
+    }
+
+    /**
+     * Upload a sketch to {@code /upload_sketch} and ask for up to
+     * {@code topK} ranked matches at or above {@code minSimilarity} percent.
+     * The ranked list is the response's {@code matches} array; servers that
+     * predate it ignore both fields and only return the best match.
+     */
+    public CompletableFuture<JSONObject> match(String fileName, byte[] sketch, int topK, double minSimilarity,
+            DoubleConsumer progress) {
+        return match(fileName, sketch.length, () -> new ByteArrayInputStream(sketch),
+                Map.of("k", Integer.toString(topK), "min_similarity", Double.toString(minSimilarity)), progress);
+    }
+
+    private CompletableFuture<JSONObject> match(String fileName, long length, Supplier<InputStream> body,
+            Map<String, String> fields, DoubleConsumer progress) {
+        String boundary = "----ForensicsBoundary" + Long.toHexString(ThreadLocalRandom.current().nextLong())
+                + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        // Plain form fields go before the file part
+        StringBuilder parts = new StringBuilder();
+        fields.forEach((name, value) -> parts.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(name).append("\"\r\n\r\n")
+                .append(value).append("\r\n"));
+        byte[] head = (parts + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"sketch\"; filename=\"" + fileName.replace("\"", "") + "\"\r\n"
+                + "Content-Type: " + contentType(fileName) + "\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        long total = head.length + length + tail.length;
+
+        // The parts are chained into one stream and read by the client as it sends
+        HttpRequest.BodyPublisher publisher = HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(() -> new CountingInputStream(new SequenceInputStream(
+                        Collections.enumeration(List.of(new ByteArrayInputStream(head), body.get(),
+                                new ByteArrayInputStream(tail)))), total, progress)),
+                total);
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("upload_sketch"))
+                .timeout(requestTimeout)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(publisher)
+                .build();
+        CompletableFuture<HttpResponse<String>> exchange =
+                client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        CompletableFuture<JSONObject> answer = exchange.thenApply(response -> new JSONObject(checkStatus(response).body()));
+        // A stage built on the exchange does not pass its cancellation back; cancelling the exchange
+        // itself aborts it, from Java 16 on
+        answer.whenComplete((json, error) -> {
+            if (answer.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return answer;
+    }
+
+    /**
+     * Version of the gallery and model the server matches against, from
+     * {@code /version}, or null if the server does not report one. The answer
+     * is reused for {@code forensics.match.versionTtlSeconds} (default 60).
+     */
+    public CompletableFuture<String> galleryVersion() {
+        CompletableFuture<String> known = version;
+        // Callers get copies, so one that gives up does not cancel the check for the others
+        if (known != null && System.nanoTime() - versionChecked < versionTtl && !known.isCompletedExceptionally()) {
+            return known.copy();
+        }
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("version"))
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+        known = client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenApply(response -> response.statusCode() == 404
+                        ? null : version(new JSONObject(checkStatus(response).body())));
+        version = known;
+        versionChecked = System.nanoTime();
+        return known.copy();
+    }
+
+    /** The gallery and model version in a {@code /version} or {@code /upload_sketch} response, or null. */
+    public static String version(JSONObject response) {
+        if (!response.has("gallery_version") || !response.has("model_version")) {
+            return null;
+        }
+        return response.getString("gallery_version") + "/" + response.getString("model_version");
+    }
+
+    /** Where the gallery photo with the given image id is served, {@code /<image_id>}. */
+    public URI photoUri(String imageId) {
+        return baseUri.resolve(pathSegment(imageId));
+    }
+
+    // Percent-encode everything but unreserved characters, so ids with spaces, '#' or ':' stay one segment
+    static String pathSegment(String value) {
+        // "." and ".." would climb the path instead of naming a photo
+        boolean dots = value.equals(".") || value.equals("..");
+        StringBuilder segment = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '~' || (c == '.' && !dots)) {
+                segment.append(c);
+            } else {
+                segment.append('%').append(String.format("%02X", b & 0xff));
+            }
+        }
+        return segment.toString();
+    }
+
+    private static <T> HttpResponse<T> checkStatus(HttpResponse<T> response) {
+        if (response.statusCode() != 200) {
+            throw new CompletionException(new StatusException(response.statusCode(), response.uri()));
+        }
+        return response;
+    }
+
+    private static String contentType(String fileName) {
+        String name = fileName.toLowerCase();
+        if (name.endsWith(".png")) {
+            return "image/png";
+        }
+        if (name.endsWith(".gif")) {
+            return "image/gif";
+        }
+        return "image/jpeg";
+    }
+
+    /** The server answered, but not with 200. */
+    public static class StatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+
+        public StatusException(int statusCode, URI uri) {
+            super("Error occurred: " + statusCode + " from " + uri);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
+
+    // Reports how much of the body has been read
+    private static final class CountingInputStream extends FilterInputStream {
+        private final long total;
+        private final DoubleConsumer progress;
+        private long count;
+
+        CountingInputStream(InputStream in, long total, DoubleConsumer progress) {
+            super(in);
+            this.total = total;
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                progress.accept(++count / (double) total);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+                progress.accept(count / (double) total);
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.mycompany.forensics_finall;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Something that ranks gallery photos by how well they match a sketch: the
+ * matching API ({@link ApiMatchEngine}), Rekognition ({@link AwsMatchEngine}),
+ * or two of them raced against each other ({@link HedgedMatchEngine}). Engines
+ * are picked by name through {@link MatchEngines}.
+ *
+ * Every engine does its own preprocessing, so callers always hand over the
+ * sketch as it was saved or composed. All calls are asynchronous and
+ * thread-safe.
+ */
+public interface MatchEngine {
+
+    /** Short name the engine is picked by, e.g. {@code api} or {@code aws}. */
+    String getName();
+
+    /**
+     * The server or collection behind the engine and how sketches are sent to
+     * it; results cached under one backend are never served for another.
+     */
+    String backend();
+
+    /**
+     * Version of the gallery and model the engine matches against, or null if
+     * it does not report one; fails if the backend could not be asked. Results
+     * are only reused while it stays the same.
+     */
+    CompletableFuture<String> galleryVersion();
+
+    /**
+     * Rank the gallery against a sketch.
+     *
+     * @param sketch the sketch as saved or composed, not yet preprocessed
+     * @param topK how many ranked matches to ask for
+     * @param minSimilarity lowest similarity, in percent, worth returning
+     * @param progress told what fraction of the sketch has been sent
+     */
+    CompletableFuture<Answer> match(MatchSketch sketch, int topK, double minSimilarity, DoubleConsumer progress);
+
+    /** Where the gallery photo with the given image id lives; photos are cached under it. */
+    URI photoUri(String imageId);
+
+    /**
+     * Where to download the photo from right now. The same as
+     * {@link #photoUri} unless the gallery is private, e.g. a presigned URL
+     * that is only good for a while.
+     */
+    default URI photoDownloadUri(String imageId) {
+        return photoUri(imageId);
+    }
+
+    /** An engine's ranked matches and what it took to get them. */
+    final class Answer {
+        private final MatchEngine engine;
+        private final List<MatchResult> matches;
+        private final String galleryVersion;
+        private final String report;
+        private final long sentBytes;
+
+        public Answer(MatchEngine engine, List<MatchResult> matches, String galleryVersion, String report,
+                long sentBytes) {
+            this.engine = engine;
+            this.matches = matches;
+            this.galleryVersion = galleryVersion;
+            this.report = report;
+            this.sentBytes = sentBytes;
+        }
+
+        /** The engine that answered; with hedging, not necessarily the one asked. */
+        public MatchEngine getEngine() {
+            return engine;
+        }
+
+        /** Best match first. */
+        public List<MatchResult> getMatches() {
+            return matches;
+        }
+
+        /** Gallery version the engine answered with, or null if it did not say. */
+        public String getGalleryVersion() {
+            return galleryVersion;
+        }
+
+        /** Payload size, bytes saved and timings of the request. */
+        public String getReport() {
+            return report;
+        }
+
+        public long getSentBytes() {
+            return sentBytes;
+        }
+    }
+}
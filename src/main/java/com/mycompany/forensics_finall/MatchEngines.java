@@ -0,0 +1,117 @@
+package com.mycompany.forensics_finall;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The match engines, by name:
+ * <ul>
+ * <li>{@code api}: the matching API at {@code forensics.match.apiUrl}</li>
+ * <li>{@code aws}: the Rekognition collection</li>
+ * </ul>
+ * {@code -Dforensics.match.engine} picks the default (api).
+ * {@code -Dforensics.match.hedge} names a second engine to hedge every
+ * request with, after the first's {@code forensics.match.hedgePercentile}
+ * latency (default 95), or {@code forensics.match.hedgeDelayMs} (default 2000)
+ * until it has answered enough to tell.
+ *
+ * Each engine is wrapped in a {@link GuardedMatchEngine} with its own
+ * {@link CircuitBreaker}:
+ * <ul>
+ * <li>{@code forensics.match.retries} (default 2) retries of a failed call</li>
+ * <li>{@code forensics.match.timeoutFactor} (default 3) times the
+ * {@code forensics.match.timeoutPercentile} (default 99) latency as the
+ * timeout, between {@code forensics.match.minTimeoutMs} (default 2000) and
+ * {@code forensics.match.readTimeoutMs} (default 60000)</li>
+ * <li>{@code forensics.match.breakerFailures} (default 5) failures in a row
+ * open the breaker for {@code forensics.match.breakerOpenMs} (default 10000)
+ * before it probes</li>
+ * </ul>
+ *
+ * Engines are created once and shared, so their connections, latency
+ * history and breaker state carry over from one match to the next.
+ */
+public final class MatchEngines {
+
+    public static final List<String> NAMES = List.of("api", "aws");
+
+    // Shrink sketches before upload; -Dforensics.match.preprocess=false sends them as they are
+    private static final boolean PREPROCESS = Boolean.parseBoolean(System.getProperty("forensics.match.preprocess", "true"));
+    private static final String HEDGE = System.getProperty("forensics.match.hedge", "");
+    private static final double HEDGE_PERCENTILE =
+            Double.parseDouble(System.getProperty("forensics.match.hedgePercentile", "95"));
+    private static final long HEDGE_DELAY_MS = Long.getLong("forensics.match.hedgeDelayMs", 2000);
+
+    private static final Map<String, MatchEngine> ENGINES = new HashMap<>();
+
+    private MatchEngines() {
+    }
+
+    /** Name of the engine used unless another is picked. */
+    public static String defaultName() {
+        return System.getProperty("forensics.match.engine", "api");
+    }
+
+    /** The named engine, hedged with {@code forensics.match.hedge} if that names a different one. */
+    public static MatchEngine configured(String name) {
+        return HEDGE.isEmpty() || HEDGE.equals(name) ? get(name) : hedged(name, HEDGE);
+    }
+
+    /** The primary engine, hedged with the secondary. */
+    public static synchronized MatchEngine hedged(String primary, String secondary) {
+        String key = primary + "+" + secondary;
+        MatchEngine engine = ENGINES.get(key);
+        if (engine == null) {
+            engine = new HedgedMatchEngine(get(primary), get(secondary), HEDGE_PERCENTILE, HEDGE_DELAY_MS);
+            ENGINES.put(key, engine);
+        }
+        return engine;
+    }
+
+    /** The named engine on its own, behind its circuit breaker. */
+    public static synchronized MatchEngine get(String name) {
+        MatchEngine engine = ENGINES.get(name);
+        if (engine == null) {
+            engine = guard(create(name));
+            ENGINES.put(name, engine);
+        }
+        return engine;
+    }
+
+    /** The circuit breakers an engine's calls go through, e.g. both of a hedged pair's. */
+    public static List<CircuitBreaker> breakers(MatchEngine engine) {
+        List<CircuitBreaker> breakers = new ArrayList<>();
+        if (engine instanceof GuardedMatchEngine) {
+            breakers.add(((GuardedMatchEngine) engine).getBreaker());
+        } else if (engine instanceof HedgedMatchEngine) {
+            breakers.addAll(breakers(((HedgedMatchEngine) engine).getPrimary()));
+            breakers.addAll(breakers(((HedgedMatchEngine) engine).getSecondary()));
+        }
+        return breakers;
+    }
+
+    private static MatchEngine guard(MatchEngine engine) {
+        return new GuardedMatchEngine(engine,
+                new CircuitBreaker(engine.getName(), Integer.getInteger("forensics.match.breakerFailures", 5),
+                        Long.getLong("forensics.match.breakerOpenMs", 10000)),
+                Integer.getInteger("forensics.match.retries", 2),
+                Double.parseDouble(System.getProperty("forensics.match.timeoutPercentile", "99")),
+                Double.parseDouble(System.getProperty("forensics.match.timeoutFactor", "3")),
+                Long.getLong("forensics.match.minTimeoutMs", 2000),
+                Long.getLong("forensics.match.readTimeoutMs", 60000));
+    }
+
+    private static MatchEngine create(String name) {
+        switch (name) {
+            case "api":
+                return new ApiMatchEngine(name, MatchApiClient.shared(),
+                        PREPROCESS ? SketchPreprocessor.forMatchApi() : null);
+            case "aws":
+                return new AwsMatchEngine(PREPROCESS ? SketchPreprocessor.forRekognition() : null);
+            default:
+                throw new IllegalArgumentException("Unknown match engine " + name + ", expected one of " + NAMES);
+        }
+    }
+}
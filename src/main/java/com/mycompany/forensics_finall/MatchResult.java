@@ -0,0 +1,60 @@
+package com.mycompany.forensics_finall;
+
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.scene.image.Image;
+
+/**
+ * A gallery photo a sketch matched, and how similar the two are.
+ *
+ * Results are shown as soon as the ranking arrives; the photo is filled in
+ * later, on the FX thread, once it has been downloaded.
+ */
+public class MatchResult {
+
+    private final String imageId;
+    private final double similarity;
+    private final double confidence;
+    private final ObjectProperty<Image> photo = new SimpleObjectProperty<>(this, "photo");
+
+    public MatchResult(String imageId, double similarity) {
+        this(imageId, similarity, Double.NaN);
+    }
+
+    /**
+     * @param confidence how sure the backend is that the gallery photo holds a
+     *        face, in percent, for backends that report it
+     */
+    public MatchResult(String imageId, double similarity, double confidence) {
+        this.imageId = imageId;
+        this.similarity = similarity;
+        this.confidence = confidence;
+    }
+
+    /** Name of the photo in the gallery, without the {@code Photos/} folder. */
+    public String getImageId() {
+        return imageId;
+    }
+
+    public double getSimilarity() {
+        return similarity;
+    }
+
+    /** Face confidence in percent, or NaN if the backend does not report one. */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /** The matched photo, or null until it has been fetched or if it could not be. */
+    public Image getPhoto() {
+        return photo.get();
+    }
+
+    public void setPhoto(Image photo) {
+        this.photo.set(photo);
+    }
+
+    public ObjectProperty<Image> photoProperty() {
+        return photo;
+    }
+}
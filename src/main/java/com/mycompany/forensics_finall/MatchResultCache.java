@@ -0,0 +1,148 @@
+package com.mycompany.forensics_finall;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.json.JSONArray;
+
+/**
+ * Ranked results of earlier matches, so resubmitting a sketch does not cost an
+ * upload and another round of inference.
+ *
+ * Results live in the {@code match_cache} table of the app's SQLite file,
+ * next to {@code login_data}. Rows are keyed by a SHA-256 of the sketch
+ * file, the backend (which server and what was asked of it) and the gallery
+ * version the backend reported. The gallery version covers both the photos and
+ * the model. A lookup only hits when the version still matches. Storing a
+ * result for a new version deletes that backend's rows for older ones.
+ *
+ * Failures are logged and treated as misses; the cache never stops a match.
+ * Thread-safe.
+ */
+public class MatchResultCache {
+
+    private static final Logger LOGGER = Logger.getLogger(MatchResultCache.class.getName());
+
+    private static final MatchResultCache SHARED = new MatchResultCache("jdbc:sqlite:login.sqlite");
+
+    private final String url;
+    private boolean created;
+
+    private long hits;
+    private long misses;
+
+    public MatchResultCache(String url) {
+        this.url = url;
+    }
+
+    public static MatchResultCache shared() {
+        return SHARED;
+    }
+
+    /** Hex SHA-256 of the sketch as it is stored. */
+    public static String hash(byte[] sketch) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(sketch);
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** The results stored for this sketch, backend and gallery version, or null. */
+    public synchronized JSONArray lookup(String sketchHash, String backend, String galleryVersion) {
+        try (Connection conn = connect();
+                PreparedStatement query = conn.prepareStatement(
+                        "SELECT results FROM match_cache WHERE sketch_hash = ? AND backend = ? AND gallery_version = ?")) {
+            query.setString(1, sketchHash);
+            query.setString(2, backend);
+            query.setString(3, galleryVersion);
+            try (ResultSet resultSet = query.executeQuery()) {
+                if (resultSet.next()) {
+                    hits++;
+                    return new JSONArray(resultSet.getString("results"));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Cannot read the match cache", e);
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(String sketchHash, String backend, String galleryVersion, JSONArray results) {
+        try (Connection conn = connect()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stale = conn.prepareStatement(
+                    "DELETE FROM match_cache WHERE backend = ? AND gallery_version <> ?");
+                    PreparedStatement insert = conn.prepareStatement(
+                            "INSERT OR REPLACE INTO match_cache (sketch_hash, backend, gallery_version, results, created) "
+                            + "VALUES (?, ?, ?, ?, ?)")) {
+                stale.setString(1, backend);
+                stale.setString(2, galleryVersion);
+                int invalidated = stale.executeUpdate();
+                if (invalidated > 0) {
+                    LOGGER.info("Gallery of " + backend + " is now " + galleryVersion + ", dropped "
+                            + invalidated + " cached results");
+                }
+                insert.setString(1, sketchHash);
+                insert.setString(2, backend);
+                insert.setString(3, galleryVersion);
+                insert.setString(4, results.toString());
+                insert.setLong(5, System.currentTimeMillis());
+                insert.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Cannot write the match cache", e);
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        if (!created) {
+            try (Statement statement = conn.createStatement()) {
+                statement.executeUpdate("CREATE TABLE IF NOT EXISTS match_cache ("
+                        + "sketch_hash TEXT NOT NULL, backend TEXT NOT NULL, gallery_version TEXT NOT NULL, "
+                        + "results TEXT NOT NULL, created INTEGER NOT NULL, "
+                        + "PRIMARY KEY (sketch_hash, backend))");
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS match_cache_version "
+                        + "ON match_cache (backend, gallery_version)");
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+            created = true;
+        }
+        return conn;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = hits + misses;
+        return String.format("%d hits, %d misses (%.0f%% hit rate)", hits, misses,
+                lookups == 0 ? 0 : 100.0 * hits / lookups);
+    }
+}
@@ -0,0 +1,45 @@
+package com.mycompany.forensics_finall;
+
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.HBox;
+
+/**
+ * One row of the ranked match list: the photo's thumbnail, its rank, name and
+ * similarity. The thumbnail is bound to the result's photo, so it appears
+ * whenever the download finishes. The list only creates cells for visible
+ * rows, however many matches there are.
+ */
+public class MatchResultCell extends ListCell<MatchResult> {
+
+    private static final double THUMBNAIL_SIZE = 48;
+
+    private final ImageView thumbnail = new ImageView();
+    private final Label text = new Label();
+    private final HBox row = new HBox(10, thumbnail, text);
+
+    public MatchResultCell() {
+        thumbnail.setFitWidth(THUMBNAIL_SIZE);
+        thumbnail.setFitHeight(THUMBNAIL_SIZE);
+        thumbnail.setPreserveRatio(true);
+        thumbnail.setSmooth(true);
+        row.setAlignment(Pos.CENTER_LEFT);
+        row.setMinHeight(THUMBNAIL_SIZE);
+    }
+
+    @Override
+    protected void updateItem(MatchResult result, boolean empty) {
+        super.updateItem(result, empty);
+        thumbnail.imageProperty().unbind();
+        if (empty || result == null) {
+            thumbnail.setImage(null);
+            setGraphic(null);
+            return;
+        }
+        thumbnail.imageProperty().bind(result.photoProperty());
+        text.setText(String.format("%d. %s%n%.1f%%", getIndex() + 1, result.getImageId(), result.getSimilarity()));
+        setGraphic(row);
+    }
+}
@@ -0,0 +1,127 @@
+package com.mycompany.forensics_finall;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A sketch handed to a {@link MatchEngine}: either a saved image file, or a
+ * composition straight from the dashboard.
+ *
+ * A composition is only rendered when an engine needs its pixels, on the
+ * thread that asks, and then handed to the {@link SketchPreprocessor} as an
+ * image; it is never encoded, written to disk or decoded on the way. Engines
+ * that send sketches as they are get a PNG through the {@link RenderCache}.
+ *
+ * Everything is worked out at most once. Thread-safe.
+ */
+public final class MatchSketch {
+
+    private final String name;
+    private final Path file;
+    private final SketchState state;
+    private final SketchRenderer renderer;
+    private byte[] bytes;
+    private BufferedImage image;
+    private String hash;
+
+    private MatchSketch(String name, Path file, byte[] bytes, SketchState state, SketchRenderer renderer) {
+        this.name = name;
+        this.file = file;
+        this.bytes = bytes;
+        this.state = state;
+        this.renderer = renderer;
+    }
+
+    /** A saved sketch; the file is read when first needed. */
+    public static MatchSketch of(Path file) {
+        return new MatchSketch(file.getFileName().toString(), file, null, null, null);
+    }
+
+    /** A sketch already read into memory. */
+    public static MatchSketch of(String name, byte[] bytes) {
+        return new MatchSketch(name, null, bytes, null, null);
+    }
+
+    /** A composition from the dashboard, rendered at the canvas size when first needed. */
+    public static MatchSketch of(String name, SketchState state, SketchRenderer renderer) {
+        return new MatchSketch(name, null, null, RenderCache.quantize(state), renderer);
+    }
+
+    /** File name to upload the sketch under. */
+    public String getName() {
+        return name;
+    }
+
+    /** Whether this is a composition rather than an image file. */
+    public boolean isComposition() {
+        return state != null;
+    }
+
+    /**
+     * Identifies the sketch for {@link MatchResultCache}: a hash of the file,
+     * or of the composition's element choices and offsets.
+     */
+    public synchronized String getHash() throws IOException {
+        if (hash == null) {
+            hash = state != null
+                    ? MatchResultCache.hash(renderKey("composition").getBytes(StandardCharsets.UTF_8))
+                    : MatchResultCache.hash(getEncoded());
+        }
+        return hash;
+    }
+
+    /** The sketch as an image file: the file's bytes, or the composition as PNG. */
+    public synchronized byte[] getEncoded() throws IOException {
+        if (bytes == null) {
+            if (file != null) {
+                bytes = Files.readAllBytes(file);
+            } else {
+                // Saving the sketch from the dashboard leaves this PNG in the cache
+                bytes = RenderCache.shared().get(renderKey("full"), () -> {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    PngEncoder.fromSystemProperties().write(getImage(), out);
+                    return out.toByteArray();
+                });
+            }
+        }
+        return bytes;
+    }
+
+    /** Shrink the sketch for upload, straight from the render for a composition. */
+    public SketchPreprocessor.Result preprocess(SketchPreprocessor preprocessor) throws IOException {
+        if (state != null) {
+            // Nothing was encoded, so there is no original size to compare with
+            return preprocessor.process(getImage(), 0);
+        }
+        return preprocessor.process(getEncoded());
+    }
+
+    /**
+     * The composition rendered at the canvas size, e.g. to show as a preview.
+     * It is rendered once, so a preview and the engine share the render.
+     */
+    public synchronized BufferedImage getImage() throws IOException {
+        if (state == null) {
+            throw new IllegalStateException(name + " is an image file, not a composition");
+        }
+        if (image == null) {
+            image = renderer.render(state);
+        }
+        return image;
+    }
+
+    private String renderKey(String variant) {
+        SketchManifest manifest = renderer.getManifest();
+        return RenderCache.key(state, (int) Math.round(manifest.getCanvasWidth()),
+                (int) Math.round(manifest.getCanvasHeight()), variant);
+    }
+
+    @Override
+    public String toString() {
+        return state != null ? name + " (composition)" : name;
+    }
+}
@@ -0,0 +1,233 @@
+package com.mycompany.forensics_finall;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Sends a sketch to a {@link MatchEngine} and fetches the matched photos, off
+ * the FX thread. The message moves through "Uploading sketch", "Matching" and
+ * "Fetching photos"; progress shows the upload, is indeterminate while the
+ * backend compares faces, then counts photos as they arrive.
+ *
+ * The ranked top-K list is published as the task's value as soon as the
+ * engine answers, before any photo is downloaded. The photos are then fetched
+ * in parallel through {@link PhotoCache} and set on their {@link MatchResult}
+ * one by one.
+ *
+ * The sketch may be a saved file or a composition straight from the
+ * dashboard; see {@link MatchSketch}.
+ *
+ * With a {@link MatchResultCache}, a sketch already matched against the
+ * engine's current gallery version is answered from the cache without
+ * uploading anything.
+ *
+ * Cancelling abandons the request in flight. The final message reports the
+ * payload sent, what was saved and how long the upload took.
+ */
+public class MatchTask extends Task<List<MatchResult>> {
+
+    private static final Logger LOGGER = Logger.getLogger(MatchTask.class.getName());
+
+    // Photos are decoded to the size of the match view, not their full resolution
+    static final double PHOTO_WIDTH = 200;
+    static final double PHOTO_HEIGHT = 250;
+
+    private final MatchEngine engine;
+    private final PhotoCache photoCache = PhotoCache.shared();
+    private final MatchSketch sketch;
+    private final MatchResultCache resultCache;
+    private final int topK;
+    private final double minSimilarity;
+    private volatile CompletableFuture<?> pending;
+    private volatile List<CompletableFuture<Void>> fetches;
+    private volatile boolean uploaded;
+    private volatile String report;
+
+    /**
+     * @param resultCache earlier results to reuse, or null to always ask the engine
+     * @param topK how many ranked matches to ask for
+     * @param minSimilarity lowest similarity, in percent, worth showing
+     */
+    public MatchTask(MatchEngine engine, MatchSketch sketch, MatchResultCache resultCache, int topK,
+            double minSimilarity) {
+        this.engine = engine;
+        this.sketch = sketch;
+        this.resultCache = resultCache;
+        this.topK = Math.max(topK, 1);
+        this.minSimilarity = minSimilarity;
+    }
+
+    @Override
+    protected List<MatchResult> call() throws Exception {
+        // A sketch already matched against this gallery needs no upload
+        String sketchHash = null;
+        String galleryVersion = null;
+        List<MatchResult> results = null;
+        if (resultCache != null) {
+            updateMessage("Checking earlier results...");
+            try {
+                galleryVersion = await(engine.galleryVersion());
+            } catch (IOException e) {
+                // Without a version nothing cached can be trusted, but the match itself may still get through
+                LOGGER.log(Level.WARNING, "Could not check the gallery version of " + engine.getName()
+                        + ", matching without the cache", e);
+            }
+            if (galleryVersion != null) {
+                sketchHash = sketch.getHash();
+                JSONArray cached = resultCache.lookup(sketchHash, backend(engine), galleryVersion);
+                if (cached != null) {
+                    results = fromJson(cached);
+                    report = "Cached result for gallery " + galleryVersion + ", nothing uploaded";
+                    LOGGER.info("Match request for " + sketch + ": " + report + "; " + resultCache);
+                }
+            }
+        }
+        MatchEngine.Answer answer = null;
+        if (results == null) {
+            answer = upload();
+            results = answer.getMatches();
+        }
+
+        // The ranked list goes out before any photo, so rows show straight away
+        updateValue(results);
+        if (answer != null && resultCache != null) {
+            // The version the engine answered with, in case it changed since it was checked
+            String version = answer.getGalleryVersion() != null ? answer.getGalleryVersion()
+                    : answer.getEngine().backend().equals(engine.backend()) ? galleryVersion : null;
+            if (version != null) {
+                resultCache.put(sketchHash != null ? sketchHash : sketch.getHash(),
+                        backend(answer.getEngine()), version, toJson(results));
+            }
+        }
+        if (results.isEmpty()) {
+            updateProgress(1, 1);
+            updateMessage(String.format("No match above %.0f%%, %s", minSimilarity, sent(answer)));
+            return results;
+        }
+
+        // Photos are fetched in parallel; each row fills in as its photo lands
+        MatchEngine photos = answer != null ? answer.getEngine() : engine;
+        updateMessage("Fetching photos...");
+        int count = results.size();
+        updateProgress(0, count);
+        AtomicInteger fetched = new AtomicInteger();
+        List<CompletableFuture<Void>> loads = new ArrayList<>();
+        for (MatchResult result : results) {
+            loads.add(photoCache.load(photos.photoUri(result.getImageId()),
+                    () -> photos.photoDownloadUri(result.getImageId()), PHOTO_WIDTH, PHOTO_HEIGHT)
+                    .handle((photo, error) -> {
+                        if (error != null) {
+                            LOGGER.log(Level.WARNING, "Failed to fetch matched photo " + result.getImageId(), error);
+                        } else {
+                            Platform.runLater(() -> result.setPhoto(photo));
+                        }
+                        updateProgress(fetched.incrementAndGet(), count);
+                        return null;
+                    }));
+        }
+        fetches = loads;
+        await(CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0])));
+        LOGGER.info("Photo cache: " + photoCache);
+        updateMessage(String.format("%d matched, best %s, %s",
+                results.size(), results.get(0).getImageId(), sent(answer)));
+        return results;
+    }
+
+    // Hand the sketch to the engine, and wait for its answer
+    private MatchEngine.Answer upload() throws IOException, InterruptedException {
+        updateMessage("Uploading sketch...");
+        MatchEngine.Answer answer = await(engine.match(sketch, topK, minSimilarity, sent -> {
+            updateProgress(sent, 1);
+            if (sent >= 1 && !uploaded) {
+                uploaded = true;
+                updateMessage("Matching...");
+                updateProgress(-1, 1);
+            }
+        }));
+        report = answer.getReport();
+        LOGGER.info("Match request for " + sketch + " to " + answer.getEngine().getName() + ": " + report);
+        return answer;
+    }
+
+    private static String sent(MatchEngine.Answer answer) {
+        return answer != null ? String.format("%.1f KB sent to %s", answer.getSentBytes() / 1024.0,
+                answer.getEngine().getName()) : "from earlier results";
+    }
+
+    // The engine and everything asked of it that shapes the answer
+    private String backend(MatchEngine answered) {
+        return answered.backend() + " k=" + topK + " min=" + minSimilarity;
+    }
+
+    private static JSONArray toJson(List<MatchResult> results) {
+        JSONArray json = new JSONArray();
+        for (MatchResult result : results) {
+            JSONObject stored = new JSONObject().put("image_id", result.getImageId())
+                    .put("similarity", result.getSimilarity());
+            if (!Double.isNaN(result.getConfidence())) {
+                stored.put("confidence", result.getConfidence());
+            }
+            json.put(stored);
+        }
+        return json;
+    }
+
+    private static List<MatchResult> fromJson(JSONArray json) {
+        List<MatchResult> results = new ArrayList<>();
+        for (int i = 0; i < json.length(); i++) {
+            JSONObject stored = json.getJSONObject(i);
+            results.add(new MatchResult(stored.getString("image_id"), stored.getDouble("similarity"),
+                    stored.optDouble("confidence", Double.NaN)));
+        }
+        return results;
+    }
+
+    /** Payload size, bytes saved and timings of the request, once it has been answered. */
+    public String getReport() {
+        return report;
+    }
+
+    // Wait for a request, unwrapping its failure
+    private <T> T await(CompletableFuture<T> request) throws IOException, InterruptedException {
+        pending = request;
+        try {
+            return request.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof HttpTimeoutException) {
+                throw new HttpTimeoutException("The match backend did not answer in time");
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        } finally {
+            pending = null;
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        CompletableFuture<?> request = pending;
+        if (cancelled && request != null) {
+            request.cancel(true);
+        }
+        List<CompletableFuture<Void>> photos = fetches;
+        if (cancelled && photos != null) {
+            photos.forEach(photo -> photo.cancel(true));
+        }
+        return cancelled;
+    }
+}
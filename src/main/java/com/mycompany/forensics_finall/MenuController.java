@@ -3,6 +3,7 @@ package com.mycompany.forensics_finall;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -28,9 +29,12 @@ public class MenuController implements Initializable {
     @FXML // Open the sketch dashboard   
     private void sketch(MouseEvent event) {
         try {
+            long start = System.nanoTime();
             FXMLLoader fxmlLoader = new FXMLLoader();
             fxmlLoader.setLocation(getClass().getResource("dashboard.fxml"));
             Scene scene = new Scene(fxmlLoader.load());
+            Logger.getLogger(getClass().getName()).info(String.format("Sketch dashboard loaded in %d ms",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
             Stage stage = new Stage();
             stage.setTitle("Sketch Dashboard");
             stage.setScene(scene);
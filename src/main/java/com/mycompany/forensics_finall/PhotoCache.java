@@ -0,0 +1,402 @@
+package com.mycompany.forensics_finall;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.scene.image.Image;
+
+/**
+ * Gallery photos downloaded for matches, kept so a suspect who matches again
+ * is not downloaded again.
+ *
+ * Photos are addressed by their URL, so the same image id from the match API
+ * and from S3 are separate entries. A photo in a private bucket may be
+ * downloaded from a different, presigned URL each time, but is still cached
+ * under its own. They are kept in memory in LRU order up to
+ * {@code forensics.photoCache.bytes} (default 32 MB) and on disk under
+ * {@code forensics.photoCache.dir} (default {@code ~/.forensics/photo-cache})
+ * up to {@code forensics.photoCache.diskBytes} (default 512 MB), each with the
+ * ETag and Last-Modified the server sent.
+ *
+ * A photo checked less than {@code forensics.photoCache.maxAgeSeconds} (default
+ * 600) ago is served without touching the network. An older one is revalidated
+ * with a conditional GET, and a 304 costs a round trip but no body. If the
+ * server cannot be reached, the stale copy is served. Concurrent requests for
+ * the same photo share one download. Thread-safe.
+ */
+public class PhotoCache {
+
+    private static final Logger LOGGER = Logger.getLogger(PhotoCache.class.getName());
+
+    private static final PhotoCache SHARED = new PhotoCache(
+            HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofMillis(Integer.getInteger("forensics.match.connectTimeoutMs", 5000)))
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .build(),
+            Duration.ofMillis(Integer.getInteger("forensics.match.readTimeoutMs", 60000)),
+            Long.getLong("forensics.photoCache.bytes", 32L * 1024 * 1024),
+            Paths.get(System.getProperty("forensics.photoCache.dir",
+                    Paths.get(System.getProperty("user.home"), ".forensics", "photo-cache").toString())),
+            Long.getLong("forensics.photoCache.diskBytes", 512L * 1024 * 1024),
+            Duration.ofSeconds(Long.getLong("forensics.photoCache.maxAgeSeconds", 600)));
+
+    // A cached photo and what is needed to revalidate it
+    private static final class Entry {
+        final byte[] data;
+        final String etag;
+        final String lastModified;
+        final long checked;
+
+        Entry(byte[] data, String etag, String lastModified, long checked) {
+            this.data = data;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.checked = checked;
+        }
+    }
+
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private final long memoryBudget;
+    private final Path directory;
+    private final long diskBudget;
+    private final long maxAgeMillis;
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(32, 0.75f, true);
+    private final Map<String, CompletableFuture<byte[]>> downloads = new ConcurrentHashMap<>();
+    private long memoryBytes;
+    private long diskBytes = -1;
+
+    private long memoryHits;
+    private long diskHits;
+    private long revalidated;
+    private long misses;
+    private long bytesSaved;
+
+    public PhotoCache(HttpClient client, Duration requestTimeout, long memoryBudget, Path directory, long diskBudget,
+            Duration maxAge) {
+        this.client = client;
+        this.requestTimeout = requestTimeout;
+        this.memoryBudget = memoryBudget;
+        this.directory = directory;
+        this.diskBudget = diskBudget;
+        this.maxAgeMillis = maxAge.toMillis();
+    }
+
+    public static PhotoCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * The photo decoded to fit within the given size, e.g. the ImageView's fit
+     * size, so a large gallery photo never has to sit in memory at full resolution.
+     */
+    public CompletableFuture<Image> load(URI uri, double width, double height) {
+        return load(uri, () -> uri, width, height);
+    }
+
+    /**
+     * The photo at {@code uri}, downloaded from the URL {@code source} gives
+     * if it is not cached or has to be revalidated.
+     */
+    public CompletableFuture<Image> load(URI uri, Supplier<URI> source, double width, double height) {
+        return fetch(uri, source).thenApply(data -> {
+            Image image = new Image(new ByteArrayInputStream(data), width, height, true, true);
+            if (image.isError()) {
+                throw new CompletionException(new IOException("Cannot decode the photo from " + uri,
+                        image.getException()));
+            }
+            return image;
+        });
+    }
+
+    /** The encoded photo, from the cache if it is there and still current. */
+    public CompletableFuture<byte[]> fetch(URI uri) {
+        return fetch(uri, () -> uri);
+    }
+
+    /** The encoded photo at {@code uri}, downloaded from the URL {@code source} gives when needed. */
+    public CompletableFuture<byte[]> fetch(URI uri, Supplier<URI> source) {
+        String key = key(uri);
+        Entry cached = lookup(key);
+        if (cached != null && System.currentTimeMillis() - cached.checked < maxAgeMillis) {
+            return CompletableFuture.completedFuture(cached.data);
+        }
+        CompletableFuture<byte[]> download = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = downloads.putIfAbsent(key, download);
+        if (running != null) {
+            return running;
+        }
+        CompletableFuture<byte[]> fetched;
+        try {
+            fetched = download(uri, source.get(), key, cached);
+        } catch (RuntimeException e) {
+            fetched = CompletableFuture.failedFuture(e);
+        }
+        fetched.whenComplete((data, error) -> {
+            downloads.remove(key, download);
+            if (error != null) {
+                download.completeExceptionally(error);
+            } else {
+                download.complete(data);
+            }
+        });
+        return download;
+    }
+
+    // Fetch the photo, conditionally if there is a copy to revalidate; errors name the photo, not a signed URL
+    private CompletableFuture<byte[]> download(URI uri, URI source, String key, Entry cached) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(source).timeout(requestTimeout).GET();
+        if (cached != null && cached.etag != null) {
+            request.header("If-None-Match", cached.etag);
+        }
+        if (cached != null && cached.lastModified != null) {
+            request.header("If-Modified-Since", cached.lastModified);
+        }
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    long now = System.currentTimeMillis();
+                    if (cached != null && (error != null || response.statusCode() == 304)) {
+                        if (error != null) {
+                            LOGGER.log(Level.WARNING, "Cannot revalidate " + uri + ", using the cached copy", error);
+                        } else {
+                            put(key, new Entry(cached.data, cached.etag, cached.lastModified, now), false);
+                        }
+                        synchronized (this) {
+                            revalidated++;
+                            bytesSaved += cached.data.length;
+                        }
+                        return cached.data;
+                    }
+                    if (error != null) {
+                        throw error instanceof CompletionException
+                                ? (CompletionException) error : new CompletionException(error);
+                    }
+                    if (response.statusCode() != 200) {
+                        throw new CompletionException(new IOException(
+                                "Error occurred: " + response.statusCode() + " from " + uri));
+                    }
+                    put(key, new Entry(response.body(), response.headers().firstValue("ETag").orElse(null),
+                            response.headers().firstValue("Last-Modified").orElse(null), now), true);
+                    synchronized (this) {
+                        misses++;
+                    }
+                    return response.body();
+                });
+    }
+
+    private static String key(URI uri) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(uri.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The cached entry from either tier, or null; counts where it was found
+    private Entry lookup(String key) {
+        synchronized (this) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                if (System.currentTimeMillis() - entry.checked < maxAgeMillis) {
+                    memoryHits++;
+                    bytesSaved += entry.data.length;
+                }
+                return entry;
+            }
+        }
+        Path file = directory.resolve(key + ".img");
+        try {
+            Properties meta = new Properties();
+            try (InputStream in = Files.newInputStream(directory.resolve(key + ".properties"))) {
+                meta.load(in);
+            }
+            Entry entry = new Entry(Files.readAllBytes(file), meta.getProperty("etag"),
+                    meta.getProperty("lastModified"), Long.parseLong(meta.getProperty("checked", "0")));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            synchronized (this) {
+                if (System.currentTimeMillis() - entry.checked < maxAgeMillis) {
+                    diskHits++;
+                    bytesSaved += entry.data.length;
+                }
+                remember(key, entry);
+            }
+            return entry;
+        } catch (NoSuchFileException e) {
+            // not cached
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Cannot read photo cache entry " + file, e);
+        }
+        return null;
+    }
+
+    // Store an entry in both tiers; the photo itself is only rewritten when it changed
+    private void put(String key, Entry entry, boolean changed) {
+        synchronized (this) {
+            remember(key, entry);
+        }
+        try {
+            Files.createDirectories(directory);
+            if (changed) {
+                write(key, ".img", out -> out.write(entry.data));
+            }
+            Properties meta = new Properties();
+            if (entry.etag != null) {
+                meta.setProperty("etag", entry.etag);
+            }
+            if (entry.lastModified != null) {
+                meta.setProperty("lastModified", entry.lastModified);
+            }
+            meta.setProperty("checked", Long.toString(entry.checked));
+            write(key, ".properties", out -> meta.store(out, null));
+            if (changed) {
+                trimDisk(entry.data.length);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot write photo cache entry " + key, e);
+        }
+    }
+
+    private interface Writer {
+        void write(OutputStream out) throws IOException;
+    }
+
+    // Write through a temporary file so readers never see half an entry
+    private void write(String key, String extension, Writer writer) throws IOException {
+        Path temp = Files.createTempFile(directory, key, ".part");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            writer.write(out);
+        }
+        Path file = directory.resolve(key + extension);
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Keep an entry in memory and trim back to the budget, least recently used first
+    private void remember(String key, Entry entry) {
+        Entry previous = memory.put(key, entry);
+        memoryBytes += entry.data.length - (previous == null ? 0 : previous.data.length);
+        Iterator<Map.Entry<String, Entry>> eldest = memory.entrySet().iterator();
+        while (memoryBytes > memoryBudget && eldest.hasNext()) {
+            Map.Entry<String, Entry> oldest = eldest.next();
+            if (!oldest.getKey().equals(key)) {
+                memoryBytes -= oldest.getValue().data.length;
+                eldest.remove();
+            }
+        }
+    }
+
+    // Delete the least recently used photos once the directory is over budget
+    private void trimDisk(long added) throws IOException {
+        synchronized (this) {
+            if (diskBytes >= 0) {
+                diskBytes += added;
+                if (diskBytes <= diskBudget) {
+                    return;
+                }
+            }
+        }
+        List<Path> files = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*.img")) {
+            for (Path file : entries) {
+                files.add(file);
+                total += Files.size(file);
+            }
+        }
+        files.sort(Comparator.comparing(PhotoCache::lastModified));
+        for (Iterator<Path> oldest = files.iterator(); total > diskBudget && oldest.hasNext();) {
+            Path file = oldest.next();
+            long size = Files.size(file);
+            if (Files.deleteIfExists(file)) {
+                total -= size;
+                String name = file.getFileName().toString();
+                Files.deleteIfExists(file.resolveSibling(name.substring(0, name.length() - 4) + ".properties"));
+            }
+        }
+        synchronized (this) {
+            diskBytes = total;
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    public synchronized long getMemoryHits() {
+        return memoryHits;
+    }
+
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+
+    /** Stale photos the server confirmed unchanged (or that were served because it could not be reached). */
+    public synchronized long getRevalidated() {
+        return revalidated;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** Photo bytes served from the cache instead of downloaded. */
+    public synchronized long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    /** Fraction of requests answered without downloading the photo. */
+    public synchronized double getHitRate() {
+        long hits = memoryHits + diskHits + revalidated;
+        return hits + misses == 0 ? 0 : hits / (double) (hits + misses);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d photos, %d/%d KB in memory, %d memory hits, %d disk hits, %d revalidated, "
+                + "%d misses (%.0f%% hit rate, %d KB saved)",
+                memory.size(), memoryBytes / 1024, memoryBudget / 1024, memoryHits, diskHits, revalidated, misses,
+                getHitRate() * 100, bytesSaved / 1024);
+    }
+}
@@ -0,0 +1,306 @@
+package com.mycompany.forensics_finall;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * PNG writer that filters and deflates horizontal bands of the image in
+ * parallel.
+ *
+ * Each band is compressed on its own and flushed to a byte boundary, and the
+ * pieces are joined into a single zlib stream, the same way pigz does it. This
+ * costs a little compression compared to one deflater, but encoding time
+ * scales with the number of cores. Opaque images are written as RGB, and
+ * {@code TYPE_BYTE_GRAY} images as 8-bit grayscale.
+ */
+public class PngEncoder {
+
+    /** PNG row filter to apply; ADAPTIVE picks the best one per row. */
+    public enum Filter {
+        NONE, SUB, UP, AVERAGE, PAETH, ADAPTIVE
+    }
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final int MIN_BAND_ROWS = 16;
+    private static final int MAX_CHUNK = 1 << 18;
+
+    private final int level;
+    private final Filter filter;
+    private final Executor executor;
+    private final int parallelism;
+
+    public PngEncoder(int level, Filter filter, Executor executor, int parallelism) {
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("Deflate level must be 0-9: " + level);
+        }
+        this.level = level;
+        this.filter = filter;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * An encoder on the common fork-join pool, configured with the
+     * {@code forensics.png.level} (default 6) and {@code forensics.png.filter}
+     * (default UP) system properties. Sketches are mostly blank paper, and UP
+     * compresses them smaller and faster than the per-row ADAPTIVE choice.
+     */
+    public static PngEncoder fromSystemProperties() {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        return fromSystemProperties(pool, pool.getParallelism());
+    }
+
+    /**
+     * As {@link #fromSystemProperties()}, encoding bands on the given executor.
+     * Callers that already encode many images in parallel can pass
+     * {@code Runnable::run} and 1 to encode each image on the calling thread.
+     */
+    public static PngEncoder fromSystemProperties(Executor executor, int parallelism) {
+        int level = Integer.getInteger("forensics.png.level", 6);
+        Filter filter = Filter.valueOf(System.getProperty("forensics.png.filter", Filter.UP.name()));
+        return new PngEncoder(level, filter, executor, parallelism);
+    }
+
+    public void write(BufferedImage image, OutputStream out) throws IOException {
+        write(image, out, progress -> { }, () -> false);
+    }
+
+    /**
+     * Encode an image.
+     *
+     * @param progress receives the fraction of bands done, from 0 to 1
+     * @param cancelled polled between bands; encoding stops with an
+     *        {@link InterruptedIOException} once it returns true
+     */
+    public void write(BufferedImage image, OutputStream out, DoubleConsumer progress, BooleanSupplier cancelled)
+            throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean gray = image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+        boolean alpha = !gray && hasAlpha(image);
+        int bpp = gray ? 1 : alpha ? 4 : 3;
+        int colorType = gray ? 0 : alpha ? 6 : 2;
+
+        int bandRows = Math.max(MIN_BAND_ROWS, (height + parallelism - 1) / parallelism);
+        int bands = (height + bandRows - 1) / bandRows;
+        List<CompletableFuture<byte[][]>> pending = new ArrayList<>(bands);
+        for (int band = 0; band < bands; band++) {
+            int first = band * bandRows;
+            int last = Math.min(height, first + bandRows);
+            boolean finalBand = band == bands - 1;
+            pending.add(CompletableFuture.supplyAsync(() -> {
+                if (cancelled.getAsBoolean()) {
+                    return null;
+                }
+                return encodeBand(image, first, last, bpp, finalBand);
+            }, executor));
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream ihdr = new DataOutputStream(header);
+        ihdr.writeInt(width);
+        ihdr.writeInt(height);
+        ihdr.writeByte(8);
+        ihdr.writeByte(colorType);
+        ihdr.writeByte(0);
+        ihdr.writeByte(0);
+        ihdr.writeByte(0);
+        writeChunk(data, "IHDR", header.toByteArray(), header.size());
+
+        // zlib header for the default window, then the band streams, then the checksum
+        ByteArrayOutputStream idat = new ByteArrayOutputStream(MAX_CHUNK);
+        idat.write(0x78);
+        idat.write(0x9c);
+        Adler32 adler = new Adler32();
+        for (int band = 0; band < bands; band++) {
+            byte[][] encoded;
+            try {
+                encoded = pending.get(band).join();
+            } catch (CompletionException e) {
+                throw new IOException("PNG encoding failed", e.getCause());
+            }
+            if (encoded == null || cancelled.getAsBoolean()) {
+                pending.forEach(future -> future.cancel(false));
+                throw new InterruptedIOException("PNG encoding cancelled");
+            }
+            adler.update(encoded[0]);
+            idat.write(encoded[1]);
+            if (idat.size() >= MAX_CHUNK) {
+                writeChunk(data, "IDAT", idat.toByteArray(), idat.size());
+                idat.reset();
+            }
+            progress.accept((band + 1) / (double) bands);
+        }
+        long checksum = adler.getValue();
+        idat.write((int) (checksum >>> 24));
+        idat.write((int) (checksum >>> 16));
+        idat.write((int) (checksum >>> 8));
+        idat.write((int) checksum);
+        writeChunk(data, "IDAT", idat.toByteArray(), idat.size());
+        writeChunk(data, "IEND", new byte[0], 0);
+        data.flush();
+    }
+
+    // Returns {filtered scanlines, raw deflate data} for rows [first, last)
+    private byte[][] encodeBand(BufferedImage image, int first, int last, int bpp, boolean finalBand) {
+        int stride = image.getWidth() * bpp;
+        byte[] filtered = new byte[(last - first) * (stride + 1)];
+        byte[] previous = first == 0 ? new byte[stride] : scanline(image, first - 1, bpp);
+        byte[] candidate = new byte[stride];
+        for (int y = first; y < last; y++) {
+            byte[] current = scanline(image, y, bpp);
+            int offset = (y - first) * (stride + 1);
+            Filter rowFilter = filter == Filter.ADAPTIVE ? bestFilter(current, previous, bpp, candidate) : filter;
+            filtered[offset] = (byte) rowFilter.ordinal();
+            applyFilter(rowFilter, current, previous, bpp, filtered, offset + 1);
+            previous = current;
+        }
+
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(filtered);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(filtered.length / 2 + 64);
+            byte[] buffer = new byte[16384];
+            if (finalBand) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int count;
+                do {
+                    count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, count);
+                } while (count == buffer.length);
+            }
+            return new byte[][] {filtered, compressed.toByteArray()};
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] scanline(BufferedImage image, int y, int bpp) {
+        int width = image.getWidth();
+        byte[] row = new byte[width * bpp];
+        if (bpp == 1) {
+            byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            System.arraycopy(pixels, y * width, row, 0, width);
+            return row;
+        }
+        int[] argb = image.getRGB(0, y, width, 1, null, 0, width);
+        for (int x = 0, i = 0; x < width; x++) {
+            int pixel = argb[x];
+            row[i++] = (byte) (pixel >>> 16);
+            row[i++] = (byte) (pixel >>> 8);
+            row[i++] = (byte) pixel;
+            if (bpp == 4) {
+                row[i++] = (byte) (pixel >>> 24);
+            }
+        }
+        return row;
+    }
+
+    // Minimum sum of absolute differences, the heuristic libpng uses
+    private static Filter bestFilter(byte[] current, byte[] previous, int bpp, byte[] scratch) {
+        Filter best = Filter.NONE;
+        long bestScore = Long.MAX_VALUE;
+        for (Filter candidate : new Filter[] {Filter.NONE, Filter.SUB, Filter.UP, Filter.AVERAGE, Filter.PAETH}) {
+            applyFilter(candidate, current, previous, bpp, scratch, 0);
+            long score = 0;
+            for (byte b : scratch) {
+                score += Math.abs((int) b);
+            }
+            if (score < bestScore) {
+                bestScore = score;
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private static void applyFilter(Filter filter, byte[] current, byte[] previous, int bpp, byte[] out, int offset) {
+        for (int i = 0; i < current.length; i++) {
+            int x = current[i] & 0xff;
+            int a = i >= bpp ? current[i - bpp] & 0xff : 0;
+            int b = previous[i] & 0xff;
+            int c = i >= bpp ? previous[i - bpp] & 0xff : 0;
+            int value;
+            switch (filter) {
+                case SUB:
+                    value = x - a;
+                    break;
+                case UP:
+                    value = x - b;
+                    break;
+                case AVERAGE:
+                    value = x - ((a + b) >>> 1);
+                    break;
+                case PAETH:
+                    value = x - paeth(a, b, c);
+                    break;
+                default:
+                    value = x;
+                    break;
+            }
+            out[offset + i] = (byte) value;
+        }
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    private static boolean hasAlpha(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return false;
+        }
+        int width = image.getWidth();
+        int[] row = new int[width];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int pixel : row) {
+                if (pixel >>> 24 != 0xff) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] data, int length) throws IOException {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(name);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+}
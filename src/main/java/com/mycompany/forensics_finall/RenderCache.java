@@ -0,0 +1,259 @@
+package com.mycompany.forensics_finall;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Encoded renders of sketch compositions, addressed by content.
+ *
+ * The key is a hash of the element library, each category's element and
+ * quantized offset, the output size and the variant (full image, matcher
+ * input, thumbnail). Toggling back to a combination that was rendered before,
+ * in this session or an earlier one, returns the stored PNG instead of
+ * rendering and encoding again.
+ *
+ * Entries are kept in memory in LRU order up to {@code forensics.renderCache.bytes}
+ * (default 16 MB) and on disk under {@code forensics.renderCache.dir} (default
+ * {@code ~/.forensics/render-cache}) up to {@code forensics.renderCache.diskBytes}
+ * (default 256 MB). Thread-safe.
+ */
+public class RenderCache {
+
+    private static final Logger LOGGER = Logger.getLogger(RenderCache.class.getName());
+
+    /** Offsets are rounded to this many canvas pixels before hashing and rendering. */
+    public static final double OFFSET_QUANTUM = 0.5;
+
+    private static final RenderCache SHARED = new RenderCache(
+            Long.getLong("forensics.renderCache.bytes", 16L * 1024 * 1024),
+            Paths.get(System.getProperty("forensics.renderCache.dir",
+                    Paths.get(System.getProperty("user.home"), ".forensics", "render-cache").toString())),
+            Long.getLong("forensics.renderCache.diskBytes", 256L * 1024 * 1024));
+
+    /** Produces the PNG for a key on a miss. */
+    public interface Producer {
+        byte[] produce() throws IOException;
+    }
+
+    private final long memoryBudget;
+    private final Path directory;
+    private final long diskBudget;
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(32, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes = -1;
+
+    private long memoryHits;
+    private long diskHits;
+    private long misses;
+
+    public RenderCache(long memoryBudget, Path directory, long diskBudget) {
+        this.memoryBudget = memoryBudget;
+        this.directory = directory;
+        this.diskBudget = diskBudget;
+    }
+
+    public static RenderCache shared() {
+        return SHARED;
+    }
+
+    /** The state with every offset rounded to {@link #OFFSET_QUANTUM}; render this so hits and misses match. */
+    public static SketchState quantize(SketchState state) {
+        SketchState quantized = state;
+        for (SketchManifest.Category category : state.getManifest().getCategories()) {
+            SketchState.Selection selection = state.get(category);
+            if (selection.getElement() != null) {
+                quantized = quantized.with(category, new SketchState.Selection(selection.getElement(),
+                        quantize(selection.getTranslateX()), quantize(selection.getTranslateY())));
+            }
+        }
+        return quantized;
+    }
+
+    private static double quantize(double offset) {
+        return Math.round(offset / OFFSET_QUANTUM) * OFFSET_QUANTUM;
+    }
+
+    /** Content address of a rendered composition. */
+    public static String key(SketchState state, int width, int height, String variant) {
+        SketchManifest manifest = state.getManifest();
+        ByteBuffer buffer = ByteBuffer.allocate(16 + manifest.getCategories().size() * 20);
+        buffer.putLong(manifest.getLibraryHash());
+        buffer.putInt(width);
+        buffer.putInt(height);
+        for (SketchManifest.Category category : manifest.getCategories()) {
+            SketchState.Selection selection = state.get(category);
+            buffer.putInt(selection.getElement() == null ? -1 : selection.getElement().getIndex());
+            buffer.putLong(Math.round(selection.getTranslateX() / OFFSET_QUANTUM));
+            buffer.putLong(Math.round(selection.getTranslateY() / OFFSET_QUANTUM));
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(buffer.array());
+            digest.update(variant.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(32);
+            byte[] hash = digest.digest();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** The cached PNG for a key, or the producer's output, which is then cached. */
+    public byte[] get(String key, Producer producer) throws IOException {
+        byte[] png = lookup(key);
+        if (png == null) {
+            png = producer.produce();
+            put(key, png);
+        }
+        return png;
+    }
+
+    /** The cached PNG for a key, or null. */
+    public byte[] lookup(String key) {
+        synchronized (this) {
+            byte[] png = memory.get(key);
+            if (png != null) {
+                memoryHits++;
+                return png;
+            }
+        }
+        Path file = directory.resolve(key + ".png");
+        try {
+            byte[] png = Files.readAllBytes(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            synchronized (this) {
+                diskHits++;
+                remember(key, png);
+            }
+            return png;
+        } catch (NoSuchFileException e) {
+            // not cached
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot read render cache entry " + file, e);
+        }
+        synchronized (this) {
+            misses++;
+        }
+        return null;
+    }
+
+    public void put(String key, byte[] png) {
+        synchronized (this) {
+            remember(key, png);
+        }
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(key + ".png");
+            Path temp = Files.createTempFile(directory, key, ".part");
+            Files.write(temp, png);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            trimDisk(png.length);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot write render cache entry " + key, e);
+        }
+    }
+
+    // Keep an entry in memory and trim back to the budget, least recently used first
+    private void remember(String key, byte[] png) {
+        byte[] previous = memory.put(key, png);
+        memoryBytes += png.length - (previous == null ? 0 : previous.length);
+        Iterator<Map.Entry<String, byte[]>> eldest = memory.entrySet().iterator();
+        while (memoryBytes > memoryBudget && eldest.hasNext()) {
+            Map.Entry<String, byte[]> entry = eldest.next();
+            if (!entry.getKey().equals(key)) {
+                memoryBytes -= entry.getValue().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    // Delete the least recently used files once the directory is over budget
+    private void trimDisk(long added) throws IOException {
+        synchronized (this) {
+            if (diskBytes >= 0) {
+                diskBytes += added;
+                if (diskBytes <= diskBudget) {
+                    return;
+                }
+            }
+        }
+        List<Path> files = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*.png")) {
+            for (Path file : entries) {
+                files.add(file);
+                total += Files.size(file);
+            }
+        }
+        files.sort(Comparator.comparing(RenderCache::lastModified));
+        for (Iterator<Path> oldest = files.iterator(); total > diskBudget && oldest.hasNext();) {
+            Path file = oldest.next();
+            long size = Files.size(file);
+            if (Files.deleteIfExists(file)) {
+                total -= size;
+            }
+        }
+        synchronized (this) {
+            diskBytes = total;
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    public synchronized long getMemoryHits() {
+        return memoryHits;
+    }
+
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** Fraction of lookups served from either tier. */
+    public synchronized double getHitRate() {
+        long lookups = memoryHits + diskHits + misses;
+        return lookups == 0 ? 0 : (memoryHits + diskHits) / (double) lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d entries, %d/%d KB in memory, %d memory hits, %d disk hits, %d misses (%.0f%% hit rate)",
+                memory.size(), memoryBytes / 1024, memoryBudget / 1024, memoryHits, diskHits, misses,
+                getHitRate() * 100);
+    }
+}
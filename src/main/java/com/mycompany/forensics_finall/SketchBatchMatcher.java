@@ -0,0 +1,414 @@
+package com.mycompany.forensics_finall;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Matches every sketch in a folder against the gallery, without a display.
+ *
+ * <pre>
+ * SketchBatchMatcher &lt;sketch dir&gt; [results.csv|results.json] [-engine api|aws] [-hedge engine]
+ *                    [-concurrency n] [-retries n] [-backoff ms] [-k n] [-min similarity]
+ * </pre>
+ *
+ * Sketches go through the same {@link MatchEngines} as the upload window;
+ * {@code -hedge} races a second engine against slow answers from the first.
+ * Engines are handed sketches on one thread per core, where they preprocess
+ * them. At most {@code -concurrency} sketches (default 4) are in flight at
+ * once. A request that fails because the backend is down or overloaded, or
+ * is refused by its open circuit breaker, is retried up to {@code -retries}
+ * times (default 3), after a jittered exponential backoff starting at
+ * {@code -backoff} ms (default 500). The engines' own quick retries are off
+ * unless {@code forensics.match.retries} is set.
+ *
+ * Each finished sketch is appended to {@code <results>.checkpoint} as one JSON
+ * line. Running the same command again skips sketches already in it, unless
+ * the file has changed since. Results are written as CSV, or JSON for a
+ * {@code .json} file name, along with throughput and latency percentiles.
+ */
+public class SketchBatchMatcher {
+
+    private static final String[] EXTENSIONS = {".png", ".jpg", ".jpeg", ".gif"};
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    /** Outcome of a batch. */
+    public static final class Report {
+        private final int matched;
+        private final int failed;
+        private final int skipped;
+        private final int retries;
+        private final long nanos;
+        private final LatencyRecorder latency;
+
+        Report(int matched, int failed, int skipped, int retries, long nanos, LatencyRecorder latency) {
+            this.matched = matched;
+            this.failed = failed;
+            this.skipped = skipped;
+            this.retries = retries;
+            this.nanos = nanos;
+            this.latency = latency;
+        }
+
+        public int getMatched() {
+            return matched;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public double getSketchesPerSecond() {
+            return nanos == 0 ? 0 : matched / (nanos / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+
+        /** Time from starting a sketch's preprocessing to its final answer, retries included. */
+        public LatencyRecorder getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Matched %d sketches (%d failed, %d skipped, %d retries) in %.2f s, %.2f sketches/s%n%s",
+                    matched, failed, skipped, retries, nanos / (double) TimeUnit.SECONDS.toNanos(1),
+                    getSketchesPerSecond(), latency);
+        }
+    }
+
+    private final MatchEngine engine;
+    private final int topK;
+    private final double minSimilarity;
+    private final int retries;
+    private final long backoffMillis;
+    private final AtomicInteger retried = new AtomicInteger();
+
+    public SketchBatchMatcher(MatchEngine engine, int topK, double minSimilarity, int retries, long backoffMillis) {
+        this.engine = engine;
+        this.topK = topK;
+        this.minSimilarity = minSimilarity;
+        this.retries = retries;
+        this.backoffMillis = backoffMillis;
+    }
+
+    /**
+     * Match each sketch not already in the checkpoint, appending every finished
+     * one to it. Failures are returned too but not checkpointed, so a later run
+     * retries them.
+     *
+     * @param results every finished or failed sketch, keyed by file name, including earlier runs'
+     */
+    public Report matchAll(List<Path> sketches, Path checkpoint, int concurrency, ExecutorService cpu,
+            Map<String, JSONObject> results) throws IOException, InterruptedException {
+        Map<String, JSONObject> done = readCheckpoint(checkpoint);
+        results.putAll(done);
+        LatencyRecorder latency = new LatencyRecorder("latency");
+        AtomicInteger matched = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        int skipped = 0;
+        Semaphore inFlight = new Semaphore(concurrency);
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+
+        long start = System.nanoTime();
+        try (BufferedWriter log = Files.newBufferedWriter(checkpoint, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            CompletableFuture<Void> all;
+            try {
+                for (Path sketch : sketches) {
+                    String name = sketch.getFileName().toString();
+                    byte[] data;
+                    try {
+                        data = Files.readAllBytes(sketch);
+                    } catch (IOException e) {
+                        // Failed like a match would, so one bad file does not stop the batch
+                        failed.incrementAndGet();
+                        System.err.println("Failed to read " + name + ": " + e);
+                        synchronized (results) {
+                            results.put(name, new JSONObject()
+                                    .put("sketch", name)
+                                    .put("attempts", 0)
+                                    .put("latency_ms", 0)
+                                    .put("error", "Cannot read sketch: " + e.getMessage()));
+                        }
+                        continue;
+                    }
+                    String hash = MatchResultCache.hash(data);
+                    JSONObject previous = done.get(name);
+                    if (previous != null && hash.equals(previous.optString("hash"))) {
+                        skipped++;
+                        continue;
+                    }
+
+                    inFlight.acquire();
+                    long started = System.nanoTime();
+                    AtomicInteger attempts = new AtomicInteger();
+                    pending.add(attempt(name, data, attempts, cpu)
+                            .handle((answer, error) -> {
+                                inFlight.release();
+                                long nanos = System.nanoTime() - started;
+                                JSONObject result = new JSONObject()
+                                        .put("sketch", name)
+                                        .put("hash", hash)
+                                        .put("attempts", attempts.get())
+                                        .put("latency_ms", TimeUnit.NANOSECONDS.toMillis(nanos));
+                                if (error != null) {
+                                    failed.incrementAndGet();
+                                    Throwable cause = unwrap(error);
+                                    result.put("error", String.valueOf(cause.getMessage()));
+                                    System.err.println("Failed to match " + name + ": " + cause);
+                                } else {
+                                    matched.incrementAndGet();
+                                    latency.record(nanos);
+                                    JSONArray matches = new JSONArray();
+                                    for (MatchResult match : answer.getMatches()) {
+                                        matches.put(new JSONObject()
+                                                .put("image_id", match.getImageId())
+                                                .put("similarity", match.getSimilarity()));
+                                    }
+                                    result.put("engine", answer.getEngine().getName());
+                                    result.put("matches", matches);
+                                }
+                                synchronized (results) {
+                                    results.put(name, result);
+                                    if (error == null) {
+                                        try {
+                                            log.write(result.toString());
+                                            log.newLine();
+                                            log.flush();
+                                        } catch (IOException e) {
+                                            throw new UncheckedIOException(e);
+                                        }
+                                    }
+                                }
+                                return null;
+                            }));
+                }
+            } finally {
+                // Requests already sent still append to the checkpoint, so it stays open until they finish
+                all = CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]));
+                all.exceptionally(error -> null).join();
+            }
+            try {
+                all.get();
+            } catch (ExecutionException e) {
+                Throwable cause = unwrap(e.getCause());
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            }
+        }
+        return new Report(matched.get(), failed.get(), skipped, retried.get(), System.nanoTime() - start, latency);
+    }
+
+    // Send the sketch, retrying after a backoff while the failure looks temporary
+    private CompletableFuture<MatchEngine.Answer> attempt(String name, byte[] sketch, AtomicInteger attempts,
+            ExecutorService cpu) {
+        int attempt = attempts.incrementAndGet();
+        // The engine preprocesses on the calling thread, so call it from the CPU pool
+        return CompletableFuture.supplyAsync(() -> engine.match(MatchSketch.of(name, sketch), topK, minSimilarity,
+                sent -> { }), cpu)
+                .thenCompose(request -> request)
+                .handle((answer, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(answer);
+                    }
+                    Throwable cause = unwrap(error);
+                    if (attempt > retries || !retryable(cause)) {
+                        return CompletableFuture.<MatchEngine.Answer>failedFuture(cause);
+                    }
+                    retried.incrementAndGet();
+                    // Full jitter, so a burst of failures does not come back as a burst of retries
+                    long ceiling = Math.min(MAX_BACKOFF_MS, backoffMillis << Math.min(attempt - 1, 16));
+                    long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+                    return CompletableFuture.supplyAsync(() -> name,
+                            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                            .thenCompose(again -> attempt(name, sketch, attempts, cpu));
+                })
+                .thenCompose(next -> next);
+    }
+
+    private static boolean retryable(Throwable error) {
+        // An open breaker is worth waiting out; the backoff grows past its open period
+        return GuardedMatchEngine.isTransient(error) || error instanceof CircuitBreaker.CircuitOpenException;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /** Sketches finished by earlier runs, keyed by file name; empty if there is no checkpoint. */
+    static Map<String, JSONObject> readCheckpoint(Path checkpoint) throws IOException {
+        Map<String, JSONObject> done = new LinkedHashMap<>();
+        try {
+            for (String line : Files.readAllLines(checkpoint, StandardCharsets.UTF_8)) {
+                // A run killed mid-write can leave a partial last line
+                if (line.startsWith("{") && line.endsWith("}")) {
+                    JSONObject result = new JSONObject(line);
+                    done.put(result.getString("sketch"), result);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // first run
+        }
+        return done;
+    }
+
+    /** The sketch images directly inside a folder, by name. */
+    static List<Path> listSketches(Path dir) throws IOException {
+        List<Path> sketches = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString().toLowerCase();
+                for (String extension : EXTENSIONS) {
+                    if (name.endsWith(extension) && Files.isRegularFile(entry)) {
+                        sketches.add(entry);
+                        break;
+                    }
+                }
+            }
+        }
+        sketches.sort(null);
+        return sketches;
+    }
+
+    /** One row per ranked match, or one row with the error for a failed sketch. */
+    static void writeCsv(Map<String, JSONObject> results, BufferedWriter out) throws IOException {
+        out.write("sketch,rank,image_id,similarity,latency_ms,attempts,engine,error");
+        out.newLine();
+        for (JSONObject result : results.values()) {
+            JSONArray matches = result.optJSONArray("matches");
+            int rows = matches == null || matches.isEmpty() ? 1 : matches.length();
+            for (int i = 0; i < rows; i++) {
+                JSONObject match = matches == null || matches.isEmpty() ? null : matches.getJSONObject(i);
+                out.write(String.join(",",
+                        csv(result.getString("sketch")),
+                        match == null ? "" : Integer.toString(i + 1),
+                        match == null ? "" : csv(match.getString("image_id")),
+                        match == null ? "" : String.format("%.4f", match.getDouble("similarity")),
+                        Long.toString(result.optLong("latency_ms")),
+                        Integer.toString(result.optInt("attempts")),
+                        csv(result.optString("engine")),
+                        csv(result.optString("error"))));
+                out.newLine();
+            }
+        }
+    }
+
+    private static String csv(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        // Retries are done here, with a backoff long enough to outlast a restart
+        if (System.getProperty("forensics.match.retries") == null) {
+            System.setProperty("forensics.match.retries", "0");
+        }
+
+        List<String> paths = new ArrayList<>();
+        int concurrency = 4;
+        int retries = 3;
+        long backoff = 500;
+        int topK = Integer.getInteger("forensics.match.topK", 5);
+        double minSimilarity = Double.parseDouble(System.getProperty("forensics.match.minSimilarity", "0"));
+        String engineName = MatchEngines.defaultName();
+        String hedge = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("-engine".equals(args[i]) && i + 1 < args.length) {
+                engineName = args[++i];
+            } else if ("-hedge".equals(args[i]) && i + 1 < args.length) {
+                hedge = args[++i];
+            } else if ("-concurrency".equals(args[i]) && i + 1 < args.length) {
+                concurrency = Integer.parseInt(args[++i]);
+            } else if ("-retries".equals(args[i]) && i + 1 < args.length) {
+                retries = Integer.parseInt(args[++i]);
+            } else if ("-backoff".equals(args[i]) && i + 1 < args.length) {
+                backoff = Long.parseLong(args[++i]);
+            } else if ("-k".equals(args[i]) && i + 1 < args.length) {
+                topK = Integer.parseInt(args[++i]);
+            } else if ("-min".equals(args[i]) && i + 1 < args.length) {
+                minSimilarity = Double.parseDouble(args[++i]);
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println("Usage: SketchBatchMatcher <sketch dir> [results.csv|results.json]"
+                    + " [-engine api|aws] [-hedge engine] [-concurrency n] [-retries n] [-backoff ms] [-k n]"
+                    + " [-min similarity]");
+            System.exit(2);
+        }
+        Path input = Paths.get(paths.get(0));
+        Path output = paths.size() > 1 ? Paths.get(paths.get(1)) : input.resolve("matches.csv");
+        Path checkpoint = output.resolveSibling(output.getFileName() + ".checkpoint");
+        Files.createDirectories(output.toAbsolutePath().getParent());
+
+        List<Path> sketches = listSketches(input);
+        MatchEngine engine = hedge == null ? MatchEngines.configured(engineName) : MatchEngines.hedged(engineName, hedge);
+        System.out.println("Matching " + sketches.size() + " sketches from " + input + " with "
+                + engine.getName() + " (" + engine.backend() + "), " + concurrency + " in flight");
+
+        ExecutorService cpu = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            SketchBatchMatcher batch = new SketchBatchMatcher(engine, topK, minSimilarity, retries, backoff);
+            Map<String, JSONObject> results = new LinkedHashMap<>();
+            Report report = batch.matchAll(sketches, checkpoint, concurrency, cpu, results);
+
+            Path temp = Files.createTempFile(output.toAbsolutePath().getParent(), output.getFileName().toString(), ".part");
+            try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                if (output.getFileName().toString().toLowerCase().endsWith(".json")) {
+                    out.write(new JSONArray(results.values()).toString(2));
+                } else {
+                    writeCsv(results, out);
+                }
+            }
+            try {
+                Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING);
+            }
+            System.out.println(report);
+            if (engine instanceof HedgedMatchEngine) {
+                System.out.println(engine);
+            }
+            System.out.println("Results written to " + output);
+            if (report.getFailed() > 0) {
+                System.exit(1);
+            }
+        } finally {
+            cpu.shutdown();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.mycompany.forensics_finall;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Re-renders a directory of sketch descriptors to PNG, without a display.
+ *
+ * <pre>
+ * SketchBatchRenderer &lt;descriptor dir&gt; [output dir] [-scale n] [-threads n]
+ * </pre>
+ *
+ * Sketches are rendered on a fork-join pool with one worker per core by
+ * default. All workers share one {@link SketchRenderer}, so each element image
+ * is decoded once for the whole batch, and each worker encodes its own PNGs.
+ */
+public class SketchBatchRenderer {
+
+    /** Outcome of a batch. */
+    public static final class Report {
+        private final int rendered;
+        private final int failed;
+        private final long nanos;
+
+        Report(int rendered, int failed, long nanos) {
+            this.rendered = rendered;
+            this.failed = failed;
+            this.nanos = nanos;
+        }
+
+        public int getRendered() {
+            return rendered;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public double getImagesPerSecond() {
+            return nanos == 0 ? 0 : rendered / (nanos / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Rendered %d sketches (%d failed) in %.2f s, %.1f images/s",
+                    rendered, failed, nanos / (double) TimeUnit.SECONDS.toNanos(1), getImagesPerSecond());
+        }
+    }
+
+    private final SketchRenderer renderer;
+    private final PngEncoder encoder;
+    private final double scale;
+
+    public SketchBatchRenderer(SketchRenderer renderer, PngEncoder encoder, double scale) {
+        this.renderer = renderer;
+        this.encoder = encoder;
+        this.scale = scale;
+    }
+
+    /**
+     * Render each sketch to {@code outputDir/<descriptor name>.png}, through a
+     * {@code .part} file that is moved into place once the PNG is complete.
+     */
+    public Report renderAll(Map<Path, SketchState> sketches, Path outputDir, ForkJoinPool pool) throws InterruptedException {
+        int width = (int) Math.round(renderer.getManifest().getCanvasWidth() * scale);
+        int height = (int) Math.round(renderer.getManifest().getCanvasHeight() * scale);
+        AtomicInteger rendered = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        List<Callable<Void>> tasks = new ArrayList<>(sketches.size());
+        for (Map.Entry<Path, SketchState> sketch : sketches.entrySet()) {
+            tasks.add(() -> {
+                Path target = outputDir.resolve(pngName(sketch.getKey()));
+                Path temp = target.resolveSibling(target.getFileName() + ".part");
+                try {
+                    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                        encoder.write(renderer.render(sketch.getValue(), width, height), out);
+                    }
+                    // Only a complete PNG ever appears under the target name
+                    try {
+                        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    rendered.incrementAndGet();
+                } catch (IOException | RuntimeException e) {
+                    failed.incrementAndGet();
+                    System.err.println("Failed to render " + sketch.getKey() + ": " + e);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                return null;
+            });
+        }
+
+        long start = System.nanoTime();
+        pool.invokeAll(tasks);
+        return new Report(rendered.get(), failed.get(), System.nanoTime() - start);
+    }
+
+    private static String pngName(Path descriptor) {
+        String name = descriptor.getFileName().toString();
+        if (name.toLowerCase().endsWith(SketchDescriptor.EXTENSION)) {
+            name = name.substring(0, name.length() - SketchDescriptor.EXTENSION.length());
+        }
+        return name + ".png";
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+
+        List<String> paths = new ArrayList<>();
+        double scale = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if ("-scale".equals(args[i]) && i + 1 < args.length) {
+                scale = Double.parseDouble(args[++i]);
+            } else if ("-threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println("Usage: SketchBatchRenderer <descriptor dir> [output dir] [-scale n] [-threads n]");
+            System.exit(2);
+        }
+        Path input = Paths.get(paths.get(0));
+        Path output = paths.size() > 1 ? Paths.get(paths.get(1)) : input;
+        Files.createDirectories(output);
+
+        SketchRenderer renderer = SketchRenderer.shared();
+        Map<Path, SketchState> sketches = SketchDescriptor.scan(input, renderer.getManifest());
+        System.out.println("Rendering " + sketches.size() + " sketches from " + input + " on " + threads + " threads");
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            SketchBatchRenderer batch = new SketchBatchRenderer(renderer,
+                    PngEncoder.fromSystemProperties(Runnable::run, 1), scale);
+            Report report = batch.renderAll(sketches, output, pool);
+            System.out.println(report);
+            if (report.getFailed() > 0) {
+                System.exit(1);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
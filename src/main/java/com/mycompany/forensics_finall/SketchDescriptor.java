@@ -0,0 +1,180 @@
+package com.mycompany.forensics_finall;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Binary sketch descriptor ({@code .fsk}): which element each category uses
+ * and how far it was dragged, instead of the rendered pixels. A descriptor is
+ * a few hundred bytes, can be reopened in the dashboard for editing, and
+ * renders back to PNG with {@link SketchRenderer}.
+ *
+ * <pre>
+ * header, 24 bytes, big-endian
+ *   int    magic          'F' 'S' 'K' 0x1a
+ *   short  version        1
+ *   short  record size    24
+ *   short  record count
+ *   short  reserved
+ *   long   library hash   {@link SketchManifest#getLibraryHash()}
+ *   int    reserved
+ * record, one per category with an element selected
+ *   byte   category       manifest ordinal
+ *   byte   reserved
+ *   short  element        index within the category
+ *   int    reserved
+ *   double translate x
+ *   double translate y
+ * </pre>
+ *
+ * Readers skip any bytes past the record size they know, so later versions can
+ * append fields to a record.
+ */
+public final class SketchDescriptor {
+
+    private static final Logger LOGGER = Logger.getLogger(SketchDescriptor.class.getName());
+
+    public static final String EXTENSION = ".fsk";
+    public static final int MAGIC = 0x46534b1a;
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 24;
+    private static final int RECORD_SIZE = 24;
+
+    private SketchDescriptor() {
+    }
+
+    public static ByteBuffer encode(SketchState state) {
+        SketchManifest manifest = state.getManifest();
+        int count = 0;
+        for (SketchManifest.Category category : manifest.getCategories()) {
+            if (state.get(category).getElement() != null) {
+                count++;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * RECORD_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.putShort((short) VERSION);
+        buffer.putShort((short) RECORD_SIZE);
+        buffer.putShort((short) count);
+        buffer.putShort((short) 0);
+        buffer.putLong(manifest.getLibraryHash());
+        buffer.putInt(0);
+        for (SketchManifest.Category category : manifest.getCategories()) {
+            SketchState.Selection selection = state.get(category);
+            if (selection.getElement() == null) {
+                continue;
+            }
+            buffer.put((byte) category.getOrdinal());
+            buffer.put((byte) 0);
+            buffer.putShort((short) selection.getElement().getIndex());
+            buffer.putInt(0);
+            buffer.putDouble(selection.getTranslateX());
+            buffer.putDouble(selection.getTranslateY());
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decode a descriptor from the buffer's current position. A descriptor made
+     * with a different element library is still loaded, with a warning, as long
+     * as the elements it names exist.
+     */
+    public static SketchState decode(ByteBuffer buffer, SketchManifest manifest) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a sketch descriptor");
+            }
+            int version = buffer.getShort() & 0xffff;
+            if (version > VERSION) {
+                throw new IOException("Unsupported sketch descriptor version " + version);
+            }
+            int recordSize = buffer.getShort() & 0xffff;
+            int count = buffer.getShort() & 0xffff;
+            buffer.getShort();
+            long libraryHash = buffer.getLong();
+            buffer.getInt();
+            if (recordSize < RECORD_SIZE) {
+                throw new IOException("Corrupt sketch descriptor: record size " + recordSize);
+            }
+            if (libraryHash != manifest.getLibraryHash()) {
+                LOGGER.warning(String.format("Sketch descriptor was saved with element library %016x, current is %016x",
+                        libraryHash, manifest.getLibraryHash()));
+            }
+
+            SketchState state = SketchState.empty(manifest);
+            for (int i = 0; i < count; i++) {
+                int start = buffer.position();
+                if (recordSize > buffer.limit() - start) {
+                    throw new IOException("Truncated sketch descriptor: record " + i + " of " + count
+                            + " ends past the end");
+                }
+                int ordinal = buffer.get() & 0xff;
+                buffer.get();
+                int index = buffer.getShort() & 0xffff;
+                buffer.getInt();
+                double translateX = buffer.getDouble();
+                double translateY = buffer.getDouble();
+                buffer.position(start + recordSize);
+                if (ordinal >= manifest.getCategories().size()
+                        || index >= manifest.getCategories().get(ordinal).getElements().size()) {
+                    throw new IOException("Sketch descriptor names an unknown element: " + ordinal + "/" + index);
+                }
+                SketchManifest.Category category = manifest.getCategories().get(ordinal);
+                state = state.with(category, new SketchState.Selection(category.getElement(index), translateX, translateY));
+            }
+            return state;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated sketch descriptor", e);
+        }
+    }
+
+    public static void write(SketchState state, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = encode(state);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    public static SketchState read(Path path, SketchManifest manifest) throws IOException {
+        // A few hundred bytes: a heap copy, since a mapping would keep the file locked on Windows until GC
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        try {
+            return decode(buffer, manifest);
+        } catch (IOException e) {
+            throw new IOException(path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read every descriptor in a directory. Files that cannot be read are
+     * logged and left out.
+     */
+    public static Map<Path, SketchState> scan(Path directory, SketchManifest manifest) throws IOException {
+        Map<Path, SketchState> states = new LinkedHashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                try {
+                    states.put(file, read(file, manifest));
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Skipping unreadable sketch descriptor " + file, e);
+                }
+            }
+        }
+        return states;
+    }
+}
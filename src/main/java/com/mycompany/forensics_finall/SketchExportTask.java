@@ -0,0 +1,143 @@
+package com.mycompany.forensics_finall;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import javafx.concurrent.Task;
+
+/**
+ * Saves a sketch as PNG together with its derivatives, rendered once:
+ * <ul>
+ * <li>{@code name.png}, the sketch at the requested scale,</li>
+ * <li>{@code name_128gray.png}, the 128x128 grayscale image the matcher compares,</li>
+ * <li>{@code name_thumb.png}, a small preview for galleries.</li>
+ * </ul>
+ * Each file is written to a temporary name and moved into place, so a
+ * cancelled or failed export never leaves a half-written PNG behind.
+ *
+ * Every output is looked up in the {@link RenderCache} first; the sketch is
+ * only rendered and encoded for outputs that are not cached. Offsets are
+ * quantized to {@link RenderCache#OFFSET_QUANTUM} either way, so a file is the
+ * same whether it came from the cache or not.
+ */
+public class SketchExportTask extends Task<List<File>> {
+
+    private static final Logger LOGGER = Logger.getLogger(SketchExportTask.class.getName());
+
+    public static final int MATCH_SIZE = 128;
+    public static final int THUMBNAIL_SIZE = Integer.getInteger("forensics.sketch.thumbnailSize", 160);
+
+    // Share of the progress bar taken by each step
+    private static final double FULL_WRITTEN = 0.75;
+    private static final double GRAY_WRITTEN = 0.9;
+
+    private final SketchRenderer renderer;
+    private final PngEncoder encoder;
+    private final SketchState state;
+    private final File file;
+    private final RenderCache cache;
+    private final double scale;
+    private BufferedImage image;
+
+    public SketchExportTask(SketchRenderer renderer, PngEncoder encoder, RenderCache cache, SketchState state,
+            File file, double scale) {
+        this.renderer = renderer;
+        this.encoder = encoder;
+        this.cache = cache;
+        this.state = state;
+        this.file = file;
+        this.scale = scale;
+    }
+
+    /** The file next to the sketch that holds a derivative, e.g. {@code case_thumb.png}. */
+    public static File derivative(File file, String suffix) {
+        String name = file.getName();
+        int dot = name.toLowerCase().endsWith(".png") ? name.length() - 4 : name.length();
+        return new File(file.getParentFile(), name.substring(0, dot) + suffix + ".png");
+    }
+
+    @Override
+    protected List<File> call() throws Exception {
+        long start = System.nanoTime();
+        List<File> written = new ArrayList<>(3);
+        long missesBefore = cache.getMisses();
+
+        int width = (int) Math.round(renderer.getManifest().getCanvasWidth() * scale);
+        int height = (int) Math.round(renderer.getManifest().getCanvasHeight() * scale);
+        SketchState quantized = RenderCache.quantize(state);
+
+        updateMessage("Writing " + file.getName() + "...");
+        byte[] png = cache.get(RenderCache.key(quantized, width, height, "full"),
+                () -> encode(rendered(quantized, width, height), 0, FULL_WRITTEN));
+        write(png, file);
+        written.add(file);
+        updateProgress(FULL_WRITTEN, 1);
+
+        File gray = derivative(file, "_128gray");
+        updateMessage("Writing " + gray.getName() + "...");
+        png = cache.get(RenderCache.key(quantized, width, height, "gray" + MATCH_SIZE), () -> encode(
+                SketchImages.toGrayscale(SketchImages.scale(rendered(quantized, width, height), MATCH_SIZE, MATCH_SIZE)),
+                FULL_WRITTEN, GRAY_WRITTEN));
+        write(png, gray);
+        written.add(gray);
+        updateProgress(GRAY_WRITTEN, 1);
+
+        File thumbnail = derivative(file, "_thumb");
+        updateMessage("Writing " + thumbnail.getName() + "...");
+        png = cache.get(RenderCache.key(quantized, width, height, "thumb" + THUMBNAIL_SIZE),
+                () -> encode(SketchImages.fit(rendered(quantized, width, height), THUMBNAIL_SIZE), GRAY_WRITTEN, 1));
+        write(png, thumbnail);
+        written.add(thumbnail);
+        updateProgress(1, 1);
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        boolean cached = cache.getMisses() == missesBefore;
+        LOGGER.info(String.format("Exported %s (%dx%d) and %d derivatives in %d ms%s; render cache: %s",
+                file, width, height, written.size() - 1, millis, cached ? " from cache" : "", cache));
+        updateMessage("Saved " + file.getName() + " in " + millis + " ms" + (cached ? " (cached)" : ""));
+        return written;
+    }
+
+    // The full-size render, made at most once per export and only if some output was not cached
+    private BufferedImage rendered(SketchState quantized, int width, int height) throws IOException {
+        if (image == null) {
+            updateMessage("Rendering sketch...");
+            image = renderer.render(quantized, width, height);
+        }
+        return image;
+    }
+
+    private byte[] encode(BufferedImage output, double from, double to) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.write(output, out, done -> updateProgress(from + (to - from) * done, 1), this::isCancelled);
+        return out.toByteArray();
+    }
+
+    // Write to a temporary file beside the target, then move it into place
+    private void write(byte[] png, File target) throws IOException {
+        if (isCancelled()) {
+            throw new InterruptedIOException("Export cancelled");
+        }
+        Path temp = target.toPath().resolveSibling(target.getName() + ".part");
+        try {
+            Files.write(temp, png);
+            try {
+                Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
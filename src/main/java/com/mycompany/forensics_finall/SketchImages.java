@@ -0,0 +1,73 @@
+package com.mycompany.forensics_finall;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+/**
+ * Resizing and grayscale helpers for rendered sketches.
+ */
+public final class SketchImages {
+
+    private SketchImages() {
+    }
+
+    /**
+     * Bicubic resize. Large reductions are done in halving steps so thin pencil
+     * lines are averaged rather than skipped.
+     */
+    public static BufferedImage scale(BufferedImage image, int width, int height) {
+        BufferedImage current = image;
+        int w = image.getWidth();
+        int h = image.getHeight();
+        do {
+            w = w / 2 >= width ? w / 2 : width;
+            h = h / 2 >= height ? h / 2 : height;
+            BufferedImage step = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = step.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = step;
+        } while (w != width || h != height);
+        return current;
+    }
+
+    /** Scale down, keeping the aspect ratio, so neither side exceeds {@code maxSide}. */
+    public static BufferedImage fit(BufferedImage image, int maxSide) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (width <= maxSide && height <= maxSide) {
+            return image;
+        }
+        double ratio = (double) maxSide / Math.max(width, height);
+        return scale(image, Math.max(1, (int) Math.round(width * ratio)), Math.max(1, (int) Math.round(height * ratio)));
+    }
+
+    /**
+     * 8-bit grayscale with the ITU-R 601 weights PIL uses for {@code convert("L")},
+     * so the matcher sees the same values as it does for uploaded files.
+     * Alpha is ignored.
+     */
+    public static BufferedImage toGrayscale(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage gray = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                int luma = (((rgb >> 16) & 0xff) * 299 + ((rgb >> 8) & 0xff) * 587 + (rgb & 0xff) * 114 + 500) / 1000;
+                pixels[y * width + x] = (byte) luma;
+            }
+        }
+        return gray;
+    }
+}
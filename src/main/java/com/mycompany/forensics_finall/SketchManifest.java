@@ -0,0 +1,261 @@
+package com.mycompany.forensics_finall;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * The sketch element library, read from {@code elements/sketch elements/manifest.json}.
+ *
+ * Categories are listed in palette order. Each one names the dashboard pane it
+ * is picked from and its stacking order on the canvas ({@code z}, drawn bottom
+ * to top). Every element has a palette thumbnail and one or more canvas layers
+ * positioned in canvas coordinates, exactly as an ImageView with
+ * {@code preserveRatio} would place them.
+ */
+public class SketchManifest {
+
+    public static final String ELEMENTS_DIR = "elements/sketch elements/";
+
+    private static SketchManifest defaultManifest;
+
+    private final double canvasWidth;
+    private final double canvasHeight;
+    private final List<Category> categories;
+    private final Map<String, Category> byId = new LinkedHashMap<>();
+    private final long libraryHash;
+
+    public static final class Category {
+        private final int ordinal;
+        private final String id;
+        private final String pane;
+        private final int z;
+        private final int columns;
+        private final List<Element> elements = new ArrayList<>();
+
+        private Category(int ordinal, JSONObject json) {
+            this.ordinal = ordinal;
+            this.id = json.getString("id");
+            this.pane = json.getString("pane");
+            this.z = json.getInt("z");
+            this.columns = json.optInt("columns", 3);
+            JSONArray items = json.getJSONArray("elements");
+            for (int i = 0; i < items.length(); i++) {
+                elements.add(new Element(this, i, items.getJSONObject(i)));
+            }
+        }
+
+        /** Position of the category in the manifest. */
+        public int getOrdinal() {
+            return ordinal;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /** The dashboard pane the category's palette is shown in, e.g. "more". */
+        public String getPane() {
+            return pane;
+        }
+
+        public int getZ() {
+            return z;
+        }
+
+        /** Number of palette columns. */
+        public int getColumns() {
+            return columns;
+        }
+
+        public List<Element> getElements() {
+            return Collections.unmodifiableList(elements);
+        }
+
+        public Element getElement(int index) {
+            return elements.get(index);
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+    }
+
+    public static final class Element {
+        private final Category category;
+        private final int index;
+        private final String thumbnail;
+        private final List<Layer> layers = new ArrayList<>();
+
+        private Element(Category category, int index, JSONObject json) {
+            this.category = category;
+            this.index = index;
+            this.thumbnail = ELEMENTS_DIR + json.getString("thumbnail");
+            JSONArray items = json.getJSONArray("layers");
+            for (int i = 0; i < items.length(); i++) {
+                layers.add(new Layer(items.getJSONObject(i)));
+            }
+        }
+
+        public Category getCategory() {
+            return category;
+        }
+
+        /** Position of the element within its category. */
+        public int getIndex() {
+            return index;
+        }
+
+        /** Resource path of the palette thumbnail. */
+        public String getThumbnail() {
+            return thumbnail;
+        }
+
+        public List<Layer> getLayers() {
+            return Collections.unmodifiableList(layers);
+        }
+
+        @Override
+        public String toString() {
+            return category.getId() + "/" + (index + 1);
+        }
+    }
+
+    public static final class Layer {
+        private final String image;
+        private final double x;
+        private final double y;
+        private final double fitWidth;
+        private final double fitHeight;
+
+        private Layer(JSONObject json) {
+            this.image = ELEMENTS_DIR + json.getString("image");
+            this.x = json.getDouble("x");
+            this.y = json.getDouble("y");
+            this.fitWidth = json.optDouble("fitWidth", 0);
+            this.fitHeight = json.optDouble("fitHeight", 0);
+        }
+
+        /** Resource path of the layer image. */
+        public String getImage() {
+            return image;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        /** Width the image is fitted into, or 0 to use its own width. */
+        public double getFitWidth() {
+            return fitWidth;
+        }
+
+        /** Height the image is fitted into, or 0 to use its own height. */
+        public double getFitHeight() {
+            return fitHeight;
+        }
+    }
+
+    public SketchManifest(JSONObject json) {
+        JSONObject canvas = json.getJSONObject("canvas");
+        this.canvasWidth = canvas.getDouble("width");
+        this.canvasHeight = canvas.getDouble("height");
+        List<Category> list = new ArrayList<>();
+        JSONArray items = json.getJSONArray("categories");
+        for (int i = 0; i < items.length(); i++) {
+            Category category = new Category(i, items.getJSONObject(i));
+            list.add(category);
+            byId.put(category.getId(), category);
+        }
+        this.categories = Collections.unmodifiableList(list);
+        this.libraryHash = hash(list);
+    }
+
+    // First 64 bits of a SHA-256 over everything that affects how a sketch renders
+    private static long hash(List<Category> categories) {
+        StringBuilder text = new StringBuilder();
+        for (Category category : categories) {
+            text.append(category.getId()).append(' ').append(category.getZ()).append('\n');
+            for (Element element : category.getElements()) {
+                for (Layer layer : element.getLayers()) {
+                    text.append(layer.getImage()).append(' ').append(layer.getX()).append(' ').append(layer.getY())
+                            .append(' ').append(layer.getFitWidth()).append(' ').append(layer.getFitHeight()).append('\n');
+                }
+                text.append('\n');
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.toString().getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** The manifest bundled with the application. */
+    public static synchronized SketchManifest getDefault() {
+        if (defaultManifest == null) {
+            try (InputStream in = SketchManifest.class.getResourceAsStream(ELEMENTS_DIR + "manifest.json")) {
+                if (in == null) {
+                    throw new IOException("Sketch element manifest not found");
+                }
+                defaultManifest = new SketchManifest(new JSONObject(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return defaultManifest;
+    }
+
+    public double getCanvasWidth() {
+        return canvasWidth;
+    }
+
+    public double getCanvasHeight() {
+        return canvasHeight;
+    }
+
+    /**
+     * Fingerprint of the element library: changes whenever categories, elements
+     * or layer placement change, so saved sketches can tell if they still
+     * reference the same elements.
+     */
+    public long getLibraryHash() {
+        return libraryHash;
+    }
+
+    public List<Category> getCategories() {
+        return categories;
+    }
+
+    public Category getCategory(String id) {
+        return byId.get(id);
+    }
+
+    /** Categories whose palette is shown in the given dashboard pane. */
+    public List<Category> getCategoriesInPane(String pane) {
+        List<Category> list = new ArrayList<>();
+        for (Category category : categories) {
+            if (category.getPane().equals(pane)) {
+                list.add(category);
+            }
+        }
+        return list;
+    }
+}
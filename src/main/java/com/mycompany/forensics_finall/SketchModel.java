@@ -0,0 +1,173 @@
+package com.mycompany.forensics_finall;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The sketch being composed: for each manifest category, the selected element
+ * (if any) and how far it has been dragged from its default position.
+ *
+ * Every change touches a single category slot, so selecting an element costs the
+ * same however many elements the category has. Listeners are told which
+ * category changed so the view can redraw just that layer.
+ *
+ * The model keeps an unlimited undo/redo history. Since states are immutable
+ * and share their unchanged selections, each history entry costs a few dozen
+ * bytes rather than a copy of the sketch, and undo and redo are a stack pop.
+ * Changes made between {@link #beginEdit()} and {@link #endEdit()}, such as
+ * every step of a drag, are undone together.
+ */
+public class SketchModel {
+
+    public interface Listener {
+        void categoryChanged(SketchManifest.Category category);
+    }
+
+    private final SketchManifest manifest;
+    private SketchState state;
+    private final List<Listener> listeners = new ArrayList<>();
+
+    private final Deque<SketchState> undo = new ArrayDeque<>();
+    private final Deque<SketchState> redo = new ArrayDeque<>();
+    private SketchState editStart;
+    private int editDepth;
+
+    public SketchModel(SketchManifest manifest) {
+        this.manifest = manifest;
+        this.state = SketchState.empty(manifest);
+    }
+
+    public SketchManifest getManifest() {
+        return manifest;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /** The current sketch as an immutable snapshot. */
+    public SketchState getState() {
+        return state;
+    }
+
+    public SketchState.Selection get(SketchManifest.Category category) {
+        return state.get(category);
+    }
+
+    /** Show an element, replacing whatever was selected in its category. */
+    public void select(SketchManifest.Element element) {
+        SketchManifest.Category category = element.getCategory();
+        SketchState.Selection current = get(category);
+        set(category, new SketchState.Selection(element, current.getTranslateX(), current.getTranslateY()));
+    }
+
+    /** Remove the element of a category and its drag offset. */
+    public void clear(SketchManifest.Category category) {
+        set(category, SketchState.Selection.EMPTY);
+    }
+
+    public void clearAll() {
+        beginEdit();
+        try {
+            for (SketchManifest.Category category : manifest.getCategories()) {
+                clear(category);
+            }
+        } finally {
+            endEdit();
+        }
+    }
+
+    /** Replace the whole sketch, e.g. with one read from a descriptor. Undone as one step. */
+    public void load(SketchState loaded) {
+        beginEdit();
+        try {
+            for (SketchManifest.Category category : manifest.getCategories()) {
+                set(category, loaded.get(category));
+            }
+        } finally {
+            endEdit();
+        }
+    }
+
+    /** Move a category's layer to the given offset from its default position. */
+    public void translate(SketchManifest.Category category, double translateX, double translateY) {
+        set(category, new SketchState.Selection(get(category).getElement(), translateX, translateY));
+    }
+
+    /** Start grouping changes into a single undo step. Calls nest. */
+    public void beginEdit() {
+        if (editDepth++ == 0) {
+            editStart = state;
+        }
+    }
+
+    /** Finish the undo step started by the matching {@link #beginEdit()}. */
+    public void endEdit() {
+        if (editDepth == 0) {
+            return;
+        }
+        if (--editDepth == 0) {
+            if (state != editStart) {
+                undo.push(editStart);
+                redo.clear();
+            }
+            editStart = null;
+        }
+    }
+
+    public boolean canUndo() {
+        return editDepth == 0 && !undo.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return editDepth == 0 && !redo.isEmpty();
+    }
+
+    /** Go back to the state before the last change. Returns false if there is nothing to undo. */
+    public boolean undo() {
+        if (!canUndo()) {
+            return false;
+        }
+        redo.push(state);
+        restore(undo.pop());
+        return true;
+    }
+
+    /** Reapply the last undone change. Returns false if there is nothing to redo. */
+    public boolean redo() {
+        if (!canRedo()) {
+            return false;
+        }
+        undo.push(state);
+        restore(redo.pop());
+        return true;
+    }
+
+    private void set(SketchManifest.Category category, SketchState.Selection selection) {
+        SketchState next = state.with(category, selection);
+        if (next == state) {
+            return;
+        }
+        beginEdit();
+        state = next;
+        for (Listener listener : listeners) {
+            listener.categoryChanged(category);
+        }
+        endEdit();
+    }
+
+    // Switch to a state from the history, notifying only the categories that differ
+    private void restore(SketchState target) {
+        SketchState previous = state;
+        state = target;
+        for (SketchManifest.Category category : manifest.getCategories()) {
+            if (previous.get(category) != target.get(category)) {
+                for (Listener listener : listeners) {
+                    listener.categoryChanged(category);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.mycompany.forensics_finall;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+
+/**
+ * Shrinks a sketch to what the matcher actually looks at before it is uploaded.
+ *
+ * The sketch is flattened onto white and cropped to a square around its
+ * visible strokes. It is then converted to 8-bit grayscale and scaled down,
+ * either to the API model's 128x128 input or, for Rekognition, to a cap on
+ * the longest side. A 620px sketch PNG of about 200 KB becomes a few KB.
+ *
+ * Cropping to a square keeps the face's proportions when the server stretches
+ * the upload to its square input.
+ */
+public class SketchPreprocessor {
+
+    /** The payload sent for one request and what preprocessing saved. */
+    public static final class Result {
+        private final byte[] png;
+        private final long originalBytes;
+        private final long nanos;
+
+        Result(byte[] png, long originalBytes, long nanos) {
+            this.png = png;
+            this.originalBytes = originalBytes;
+            this.nanos = nanos;
+        }
+
+        /** The grayscale PNG to upload. */
+        public byte[] getPng() {
+            return png;
+        }
+
+        /** Size of the encoded sketch before preprocessing, or 0 if it was never encoded. */
+        public long getOriginalBytes() {
+            return originalBytes;
+        }
+
+        public long getSavedBytes() {
+            return originalBytes - png.length;
+        }
+
+        /** Time spent preprocessing, in nanoseconds. */
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            if (originalBytes == 0) {
+                return String.format("%.1f KB sent, preprocessed in %d ms", png.length / 1024.0,
+                        TimeUnit.NANOSECONDS.toMillis(nanos));
+            }
+            return String.format("%.1f KB sent instead of %.1f KB, %.0f%% smaller, preprocessed in %d ms",
+                    png.length / 1024.0, originalBytes / 1024.0, 100.0 * getSavedBytes() / originalBytes,
+                    TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+
+    // A pixel is part of the sketch if it is this opaque and this dark
+    private static final int MIN_ALPHA = 16;
+    private static final int MAX_LUMA = 245;
+    private static final double MARGIN = 0.04;
+    private static final boolean CROP = Boolean.parseBoolean(System.getProperty("forensics.match.crop", "true"));
+
+    private final int size;
+    private final int maxSide;
+    private final boolean crop;
+    private final PngEncoder encoder;
+
+    /**
+     * @param size side of the square output, or 0 to keep the cropped aspect
+     * @param maxSide cap on the longest side when {@code size} is 0
+     * @param crop whether to crop to the sketched area
+     */
+    public SketchPreprocessor(int size, int maxSide, boolean crop, PngEncoder encoder) {
+        this.size = size;
+        this.maxSide = maxSide;
+        this.crop = crop;
+        this.encoder = encoder;
+    }
+
+    /** Input for forensicsapi.py: 128x128 grayscale, what the server's model is fed. */
+    public static SketchPreprocessor forMatchApi() {
+        return new SketchPreprocessor(SketchExportTask.MATCH_SIZE, 0,
+                CROP, PngEncoder.fromSystemProperties());
+    }
+
+    /**
+     * Input for Rekognition: grayscale, longest side capped at
+     * {@code forensics.rekognition.maxSide} (default 800).
+     */
+    public static SketchPreprocessor forRekognition() {
+        return new SketchPreprocessor(0, Integer.getInteger("forensics.rekognition.maxSide", 800),
+                CROP, PngEncoder.fromSystemProperties());
+    }
+
+    /** Preprocess an encoded image, e.g. a sketch file's bytes. */
+    public Result process(byte[] original) throws IOException {
+        long start = System.nanoTime();
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(original));
+        if (image == null) {
+            throw new IOException("Unsupported sketch image format");
+        }
+        return process(image, original.length, start);
+    }
+
+    /** Preprocess an image already in memory, e.g. straight from the renderer. */
+    public Result process(BufferedImage image, long originalBytes) throws IOException {
+        return process(image, originalBytes, System.nanoTime());
+    }
+
+    private Result process(BufferedImage image, long originalBytes, long start) throws IOException {
+        BufferedImage flat = flatten(image, crop ? squareAround(contentBounds(image), image) : null);
+        BufferedImage scaled;
+        if (size > 0) {
+            scaled = SketchImages.scale(flat, size, size);
+        } else {
+            scaled = SketchImages.fit(flat, maxSide);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.write(SketchImages.toGrayscale(scaled), out);
+        return new Result(out.toByteArray(), originalBytes, System.nanoTime() - start);
+    }
+
+    /** Smallest rectangle holding every visible, non-white pixel; the whole image if there are none. */
+    static Rectangle contentBounds(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int minX = width;
+        int minY = height;
+        int maxX = -1;
+        int maxY = -1;
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int argb = row[x];
+                int luma = (((argb >> 16) & 0xff) * 299 + ((argb >> 8) & 0xff) * 587 + (argb & 0xff) * 114) / 1000;
+                if (argb >>> 24 >= MIN_ALPHA && luma <= MAX_LUMA) {
+                    minX = Math.min(minX, x);
+                    maxX = Math.max(maxX, x);
+                    minY = Math.min(minY, y);
+                    maxY = Math.max(maxY, y);
+                }
+            }
+        }
+        if (maxX < 0) {
+            return new Rectangle(0, 0, width, height);
+        }
+        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    // A square centred on the bounds with a small margin; it may extend past the image
+    private static Rectangle squareAround(Rectangle bounds, BufferedImage image) {
+        int side = (int) Math.ceil(Math.max(bounds.width, bounds.height) * (1 + 2 * MARGIN));
+        side = Math.min(side, Math.max(image.getWidth(), image.getHeight()));
+        int x = bounds.x + bounds.width / 2 - side / 2;
+        int y = bounds.y + bounds.height / 2 - side / 2;
+        return new Rectangle(x, y, side, side);
+    }
+
+    // Draw the region (or the whole image) onto opaque white, so transparency reads as paper
+    private static BufferedImage flatten(BufferedImage image, Rectangle region) {
+        Rectangle area = region == null ? new Rectangle(0, 0, image.getWidth(), image.getHeight()) : region;
+        BufferedImage flat = new BufferedImage(area.width, area.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = flat.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, area.width, area.height);
+            g.drawImage(image, -area.x, -area.y, null);
+        } finally {
+            g.dispose();
+        }
+        return flat;
+    }
+}
@@ -0,0 +1,86 @@
+package com.mycompany.forensics_finall;
+
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of a sketch: for each manifest category, the selected
+ * element and its drag offset. Safe to hand to worker threads for rendering or
+ * saving while the dashboard keeps editing.
+ */
+public final class SketchState {
+
+    /** A category's current element and drag offset. */
+    public static final class Selection {
+        public static final Selection EMPTY = new Selection(null, 0, 0);
+
+        private final SketchManifest.Element element;
+        private final double translateX;
+        private final double translateY;
+
+        public Selection(SketchManifest.Element element, double translateX, double translateY) {
+            this.element = element;
+            this.translateX = translateX;
+            this.translateY = translateY;
+        }
+
+        /** The selected element, or null if the category is empty. */
+        public SketchManifest.Element getElement() {
+            return element;
+        }
+
+        public double getTranslateX() {
+            return translateX;
+        }
+
+        public double getTranslateY() {
+            return translateY;
+        }
+
+        boolean sameAs(Selection other) {
+            return element == other.element && translateX == other.translateX && translateY == other.translateY;
+        }
+    }
+
+    private final SketchManifest manifest;
+    private final Selection[] selections;
+
+    private SketchState(SketchManifest manifest, Selection[] selections) {
+        this.manifest = manifest;
+        this.selections = selections;
+    }
+
+    /** A sketch with nothing selected. */
+    public static SketchState empty(SketchManifest manifest) {
+        Selection[] selections = new Selection[manifest.getCategories().size()];
+        Arrays.fill(selections, Selection.EMPTY);
+        return new SketchState(manifest, selections);
+    }
+
+    public SketchManifest getManifest() {
+        return manifest;
+    }
+
+    public Selection get(SketchManifest.Category category) {
+        return selections[category.getOrdinal()];
+    }
+
+    /** A copy of this state with one category replaced. Unchanged selections are shared. */
+    public SketchState with(SketchManifest.Category category, Selection selection) {
+        if (get(category).sameAs(selection)) {
+            return this;
+        }
+        Selection[] copy = selections.clone();
+        copy[category.getOrdinal()] = selection;
+        return new SketchState(manifest, copy);
+    }
+
+    /** True if no category has an element selected. */
+    public boolean isEmpty() {
+        for (Selection selection : selections) {
+            if (selection.getElement() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,324 @@
+package com.mycompany.forensics_finall;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.stage.FileChooser;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.fxml.FXMLLoader;
+import javafx.fxml.Initializable;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.stage.Stage;
+
+public class Upload_sketchController implements Initializable {
+
+    private static final Logger LOGGER = Logger.getLogger(Upload_sketchController.class.getName());
+
+    // Reuse earlier results for a resubmitted sketch; -Dforensics.match.resultCache=false always asks the backend
+    private static final boolean RESULT_CACHE = Boolean.parseBoolean(System.getProperty("forensics.match.resultCache", "true"));
+    // How many ranked matches to show, and the lowest similarity (percent) worth showing
+    private static final int TOP_K = Integer.getInteger("forensics.match.topK", 5);
+    private static final double MIN_SIMILARITY = Double.parseDouble(System.getProperty("forensics.match.minSimilarity", "0"));
+
+    // Match currently running, if any
+    private MatchTask matching;
+    // Composition handed over by the dashboard, matched instead of a file until one is opened
+    private MatchSketch composed;
+
+    @FXML
+    private ImageView sketch;
+    @FXML
+    private ImageView match;
+    @FXML
+    private TextField sketchPath;
+    @FXML
+    private TextField matchPath;
+    @FXML
+    private TextArea matchProperties;
+    @FXML
+    private Label matchSimilarity;
+    @FXML
+    private Button findMatchButton;
+    @FXML
+    private Button cancelMatchButton;
+    @FXML
+    private ProgressBar matchProgress;
+    @FXML
+    private Label matchStatus;
+    @FXML
+    private ListView<MatchResult> matchList;
+    @FXML
+    private ChoiceBox<String> matchEngine;
+    @FXML
+    private Label engineHealth;
+
+    // Breakers of the selected engine, watched so the window shows when it fails fast
+    private List<CircuitBreaker> watched = List.of();
+    private final Runnable breakerChanged = () -> Platform.runLater(this::showEngineHealth);
+
+    // Report of the last answered request, shown with the selected match
+    private String matchReport;
+
+    @Override
+    public void initialize(URL url, ResourceBundle rb) {
+        // Any engine can be picked per match; -Dforensics.match.engine sets the one selected at first
+        matchEngine.getItems().setAll(MatchEngines.NAMES);
+        matchEngine.valueProperty().addListener((observable, previous, selected) -> watchEngine(selected));
+        matchEngine.setValue(MatchEngines.defaultName());
+        matchList.setCellFactory(list -> new MatchResultCell());
+        matchList.getSelectionModel().selectedItemProperty().addListener(
+                (observable, previous, selected) -> showMatch(selected));
+    }
+
+    @FXML
+    private void handleOpenSketch() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Image Files", "*.jpg", "*.png", "*.jpeg", "*.gif"));
+        File file = fileChooser.showOpenDialog(null);
+
+        if (file != null) {
+            composed = null;
+            String path = file.getAbsolutePath();
+            sketchPath.setText(path);
+            try {
+                BufferedImage bufferedImage = ImageIO.read(file);
+                Image image = SwingFXUtils.toFXImage(bufferedImage, null);
+                sketch.setImage(image);
+            } catch (IOException e) {
+                showError("Error opening image", "An error occurred while opening the image.");
+            }
+        }
+    }
+
+    /**
+     * Match a sketch composed on the dashboard straight away, without saving
+     * it and opening it again. The preview is rendered off the FX thread,
+     * and the engine is handed the same render.
+     */
+    public void matchSketch(MatchSketch composition) {
+        composed = composition;
+        sketchPath.setText(composition.getName() + " (from the dashboard)");
+        sketch.setImage(null);
+        Task<Image> preview = new Task<Image>() {
+            @Override
+            protected Image call() throws Exception {
+                return SwingFXUtils.toFXImage(composition.getImage(), null);
+            }
+        };
+        preview.setOnSucceeded(event -> {
+            if (composed == composition) {
+                sketch.setImage(preview.getValue());
+            }
+        });
+        preview.setOnFailed(event -> LOGGER.log(Level.WARNING, "Could not render a preview of " + composition,
+                preview.getException()));
+        Thread renderer = new Thread(preview, "sketch-preview");
+        renderer.setDaemon(true);
+        renderer.start();
+        handleFindMatch();
+    }
+
+    @FXML
+    private void handleFindMatch() {
+        String fileName = sketchPath.getText();
+        if (composed == null && (fileName == null || fileName.isEmpty())) {
+            showError("No Sketch", "Open a sketch before looking for a match.");
+            return;
+        }
+        if (matching != null) {
+            matching.cancel();
+        }
+
+        MatchEngine engine;
+        try {
+            engine = MatchEngines.configured(matchEngine.getValue());
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Cannot set up match engine " + matchEngine.getValue(), e);
+            showError("Match Error", "The " + matchEngine.getValue() + " engine is not available: " + e.getMessage());
+            return;
+        }
+
+        // Upload, match and fetch the photo on a worker thread; the window stays responsive
+        MatchTask task = new MatchTask(engine, composed != null ? composed : MatchSketch.of(Paths.get(fileName)),
+                RESULT_CACHE ? MatchResultCache.shared() : null, TOP_K, MIN_SIMILARITY);
+        // The ranking is published before the photos, so the rows show while those download
+        task.valueProperty().addListener((observable, previous, results) -> {
+            if (matching == task && results != null) {
+                showResults(results, task.getReport());
+            }
+        });
+        task.setOnSucceeded(event -> finishMatch(task, task.getMessage()));
+        task.setOnCancelled(event -> finishMatch(task, "Cancelled"));
+        task.setOnFailed(event -> {
+            finishMatch(task, "Failed");
+            LOGGER.log(Level.WARNING, "Match failed", task.getException());
+            showError("Match Error", "Matching failed: " + task.getException().getMessage());
+        });
+        matching = task;
+        showResults(List.of(), null);
+        matchProgress.progressProperty().bind(task.progressProperty());
+        matchStatus.textProperty().bind(task.messageProperty());
+        matchProgress.setVisible(true);
+        findMatchButton.setDisable(true);
+        cancelMatchButton.setDisable(false);
+        matchEngine.setDisable(true);
+
+        Thread worker = new Thread(task, "sketch-match");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @FXML
+    private void handleCancelMatch() {
+        if (matching != null) {
+            matching.cancel();
+        }
+    }
+
+    private void finishMatch(MatchTask task, String status) {
+        if (matching != task) {
+            return;
+        }
+        matching = null;
+        matchProgress.progressProperty().unbind();
+        matchStatus.textProperty().unbind();
+        matchStatus.setText(status);
+        matchProgress.setVisible(false);
+        findMatchButton.setDisable(false);
+        cancelMatchButton.setDisable(true);
+        matchEngine.setDisable(false);
+        showEngineHealth();
+    }
+
+    private void watchEngine(String name) {
+        watched.forEach(breaker -> breaker.removeListener(breakerChanged));
+        try {
+            watched = MatchEngines.breakers(MatchEngines.configured(name));
+        } catch (RuntimeException e) {
+            watched = List.of();
+        }
+        watched.forEach(breaker -> breaker.addListener(breakerChanged));
+        showEngineHealth();
+    }
+
+    private void showEngineHealth() {
+        StringBuilder text = new StringBuilder();
+        Color color = Color.LIGHTGREEN;
+        for (CircuitBreaker breaker : watched) {
+            if (text.length() > 0) {
+                text.append("\n");
+            }
+            text.append(breaker.getName()).append(": ");
+            switch (breaker.getState()) {
+                case OPEN:
+                    text.append("unavailable, failing fast until ").append(LocalTime.now()
+                            .plus(breaker.getRetryAfterMillis(), ChronoUnit.MILLIS).truncatedTo(ChronoUnit.SECONDS));
+                    color = Color.SALMON;
+                    break;
+                case HALF_OPEN:
+                    text.append("recovering, probing");
+                    if (color != Color.SALMON) {
+                        color = Color.ORANGE;
+                    }
+                    break;
+                default:
+                    text.append("available");
+            }
+        }
+        engineHealth.setText(text.toString());
+        engineHealth.setTextFill(color);
+    }
+
+    private void showResults(List<MatchResult> results, String report) {
+        matchReport = report;
+        matchList.getItems().setAll(results);
+        if (results.isEmpty()) {
+            showMatch(null);
+        } else {
+            matchList.getSelectionModel().selectFirst();
+        }
+    }
+
+    private void showMatch(MatchResult result) {
+        match.imageProperty().unbind();
+        if (result == null) {
+            match.setImage(null);
+            matchPath.clear();
+            matchSimilarity.setText("Match Similarity");
+            matchProperties.setText(matchReport == null ? "" : "No match found.\n\nRequest: " + matchReport + "\n");
+            return;
+        }
+        matchPath.setText(result.getImageId());
+        matchSimilarity.setText("SIMILARITY : " + result.getSimilarity());
+        matchProperties.setText("****************\nFACE MATCHED\n****************\n\n"
+                + "Name in database: " + result.getImageId()
+                + "\nSimilarity: " + result.getSimilarity() + "\n"
+                + (Double.isNaN(result.getConfidence()) ? "" : "Confidence: " + result.getConfidence() + "\n")
+                + "Rank: " + (matchList.getItems().indexOf(result) + 1) + " of " + matchList.getItems().size() + "\n"
+                + "\nRequest: " + matchReport + "\n");
+        // Follows the photo in once it has downloaded
+        match.imageProperty().bind(result.photoProperty());
+    }
+
+    private void showError(String title, String message) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+
+        TextArea textArea = new TextArea(message);
+        textArea.setWrapText(true);
+        textArea.setEditable(false);
+        textArea.setPrefSize(600, 400);
+
+        VBox vbox = new VBox(textArea);
+        vbox.setSpacing(10);
+        alert.getDialogPane().setContent(vbox);
+
+        alert.showAndWait();
+    }
+
+    private void showInfo(String title, String message) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION, message, ButtonType.OK);
+        alert.setTitle(title);
+        alert.showAndWait();
+    }
+
+    @FXML
+    private void handleBack(MouseEvent event) {
+        watched.forEach(breaker -> breaker.removeListener(breakerChanged));
+        try {
+            FXMLLoader fxmlLoader = new FXMLLoader();
+            fxmlLoader.setLocation(getClass().getResource("menu.fxml"));
+            javafx.scene.Parent root = fxmlLoader.load();
+            Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
+            Scene scene = new Scene(root);
+            stage.setTitle("Menu");
+            stage.setScene(scene);
+            stage.setResizable(false);
+            stage.centerOnScreen();
+            stage.show();
+        } catch (IOException e) {
+            Logger logger = Logger.getLogger(getClass().getName());
+            logger.log(Level.SEVERE, "Failed to load menu.", e);
+        }
+    }
+}
@@ -51,6 +51,8 @@ public class splash_screenController implements Initializable {
     
     @Override
     public void initialize(URL url, ResourceBundle rb) {
+        // Set up the AWS clients while the splash and login screens are up, so the first match is not slower
+        AwsClients.shared().warmUp();
         new SplashScreen().start();
     }  
 }
\ No newline at end of file
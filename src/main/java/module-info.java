@@ -4,6 +4,7 @@ module com.mycompany.forensics_finall {
     requires java.desktop;
     requires java.sql;
     requires java.logging;
+    requires java.net.http;
     requires javafx.swing;
     requires org.json;
     
@@ -13,6 +14,7 @@ module com.mycompany.forensics_finall {
     requires software.amazon.awssdk.services.s3; 
     requires software.amazon.awssdk.regions; // Added for regions package
     requires software.amazon.awssdk.auth;    // Added for auth credentials package
+    requires software.amazon.awssdk.retries.api; // Retry strategy of the collection indexer
 
     opens com.mycompany.forensics_finall to javafx.fxml;
     exports com.mycompany.forensics_finall;
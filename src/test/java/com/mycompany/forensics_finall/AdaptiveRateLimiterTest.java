@@ -0,0 +1,74 @@
+package com.mycompany.forensics_finall;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveRateLimiterTest {
+
+    @Test
+    void startsWithinItsBounds() {
+        assertEquals(50, new AdaptiveRateLimiter(100, 1, 50).getRate());
+        assertEquals(5, new AdaptiveRateLimiter(0.5, 5, 50).getRate());
+        assertEquals(20, new AdaptiveRateLimiter(20, 5, 50).getRate());
+    }
+
+    @Test
+    void throttleCutsTheRateDownToItsFloor() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(1000, 400, 1000);
+        limiter.onThrottle();
+        assertEquals(700, limiter.getRate(), 1e-9);
+        sleepMillis(5);
+        limiter.onThrottle();
+        assertEquals(490, limiter.getRate(), 1e-9);
+        sleepMillis(5);
+        limiter.onThrottle();
+        assertEquals(400, limiter.getRate(), 1e-9);
+        assertEquals(3, limiter.getThrottles());
+    }
+
+    @Test
+    void throttlesWithinOneIntervalCutOnce() {
+        // One call a second, so every throttle below lands within the interval of the first cut
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(1, 0.1, 10);
+        limiter.onThrottle();
+        limiter.onThrottle();
+        limiter.onThrottle();
+        assertEquals(0.7, limiter.getRate(), 1e-9);
+        assertEquals(3, limiter.getThrottles());
+    }
+
+    @Test
+    void successRaisesTheRateUpToItsCeiling() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(10, 1, 100);
+        limiter.onSuccess();
+        assertEquals(10.2, limiter.getRate(), 1e-9);
+        for (int i = 0; i < 1000; i++) {
+            limiter.onSuccess();
+        }
+        assertEquals(100, limiter.getRate(), 1e-9);
+    }
+
+    @Test
+    void spacesCallsAtTheCurrentRate() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(50, 1, 50);
+        limiter.acquire();
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // Five more permits at 20 ms apart
+        assertTrue(elapsed >= 90, "5 permits in " + elapsed + " ms");
+    }
+
+    private static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.mycompany.forensics_finall;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 100;
+
+    @Test
+    void opensAfterThresholdFailuresInARow() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, OPEN_MILLIS);
+        for (int i = 0; i < 2; i++) {
+            breaker.acquire();
+            breaker.onFailure();
+        }
+        breaker.acquire();
+        breaker.onSuccess();
+        for (int i = 0; i < 2; i++) {
+            breaker.acquire();
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.acquire();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        CircuitBreaker.CircuitOpenException refused = assertThrows(CircuitBreaker.CircuitOpenException.class,
+                breaker::acquire);
+        assertTrue(refused.getRetryAfterMillis() > 0 && refused.getRetryAfterMillis() <= OPEN_MILLIS);
+    }
+
+    @Test
+    void letsOneProbeThroughOnceOpenTimeHasPassed() throws Exception {
+        CircuitBreaker breaker = opened();
+        Thread.sleep(OPEN_MILLIS + 20);
+
+        breaker.acquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertThrows(CircuitBreaker.CircuitOpenException.class, breaker::acquire);
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.acquire();
+        breaker.acquire();
+    }
+
+    @Test
+    void failedProbeReopensForLonger() throws Exception {
+        CircuitBreaker breaker = opened();
+        Thread.sleep(OPEN_MILLIS + 20);
+
+        breaker.acquire();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.getRetryAfterMillis() > OPEN_MILLIS, "retry after " + breaker.getRetryAfterMillis());
+    }
+
+    @Test
+    void abandonedProbeLetsAnotherThrough() throws Exception {
+        CircuitBreaker breaker = opened();
+        Thread.sleep(OPEN_MILLIS + 20);
+
+        breaker.acquire();
+        breaker.onAbandoned();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.acquire();
+    }
+
+    @Test
+    void tellsListenersOfEveryChangeOfState() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, OPEN_MILLIS);
+        AtomicInteger changes = new AtomicInteger();
+        breaker.addListener(changes::incrementAndGet);
+
+        breaker.acquire();
+        breaker.onSuccess();
+        assertEquals(0, changes.get());
+        breaker.acquire();
+        breaker.onFailure();
+        assertEquals(1, changes.get());
+        Thread.sleep(OPEN_MILLIS + 20);
+        breaker.acquire();
+        assertEquals(2, changes.get());
+        breaker.onSuccess();
+        assertEquals(3, changes.get());
+    }
+
+    private static CircuitBreaker opened() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, OPEN_MILLIS);
+        breaker.acquire();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+}
@@ -0,0 +1,67 @@
+package com.mycompany.forensics_finall;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CollectionManifestTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keepsEntriesAcrossConnections() throws Exception {
+        String url = url();
+        try (CollectionManifest manifest = new CollectionManifest(url, "faces")) {
+            manifest.put("Photos/a.png", "etag-a", Arrays.asList("face-1", "face-2"));
+            manifest.put("Photos/b.png", "etag-b", Collections.emptyList());
+        }
+        try (CollectionManifest manifest = new CollectionManifest(url, "faces")) {
+            Map<String, CollectionManifest.Entry> entries = manifest.load();
+            assertEquals(2, entries.size());
+            assertEquals("etag-a", entries.get("Photos/a.png").getEtag());
+            assertEquals(Arrays.asList("face-1", "face-2"), entries.get("Photos/a.png").getFaceIds());
+            assertTrue(entries.get("Photos/b.png").getFaceIds().isEmpty());
+        }
+    }
+
+    @Test
+    void replacesAndRemovesEntries() throws Exception {
+        try (CollectionManifest manifest = new CollectionManifest(url(), "faces")) {
+            manifest.put("Photos/a.png", "etag-1", Arrays.asList("face-1"));
+            manifest.put("Photos/a.png", "etag-2", Arrays.asList("face-3"));
+            manifest.put("Photos/b.png", "etag-b", Arrays.asList("face-4"));
+            manifest.remove("Photos/b.png");
+            manifest.remove("Photos/missing.png");
+
+            Map<String, CollectionManifest.Entry> entries = manifest.load();
+            assertEquals(1, entries.size());
+            assertEquals("etag-2", entries.get("Photos/a.png").getEtag());
+            assertEquals(Arrays.asList("face-3"), entries.get("Photos/a.png").getFaceIds());
+        }
+    }
+
+    @Test
+    void keepsCollectionsApart() throws Exception {
+        String url = url();
+        try (CollectionManifest faces = new CollectionManifest(url, "faces");
+                CollectionManifest other = new CollectionManifest(url, "other")) {
+            faces.put("Photos/a.png", "etag-a", Arrays.asList("face-1"));
+            other.put("Photos/a.png", "etag-x", Arrays.asList("face-9"));
+            other.remove("Photos/a.png");
+
+            assertEquals("etag-a", faces.load().get("Photos/a.png").getEtag());
+            assertTrue(other.load().isEmpty());
+        }
+    }
+
+    private String url() {
+        return "jdbc:sqlite:" + dir.resolve("manifest.sqlite");
+    }
+}
@@ -0,0 +1,231 @@
+package com.mycompany.forensics_finall;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.model.DeleteFacesRequest;
+import software.amazon.awssdk.services.rekognition.model.DeleteFacesResponse;
+import software.amazon.awssdk.services.rekognition.model.Face;
+import software.amazon.awssdk.services.rekognition.model.FaceRecord;
+import software.amazon.awssdk.services.rekognition.model.IndexFacesRequest;
+import software.amazon.awssdk.services.rekognition.model.IndexFacesResponse;
+import software.amazon.awssdk.services.rekognition.model.InvalidParameterException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+class CollectionsaddforrekognitionTest {
+
+    @TempDir
+    Path dir;
+
+    private CollectionManifest manifest;
+    private final FakeS3 s3 = new FakeS3();
+    private final FakeRekognition rekognition = new FakeRekognition();
+
+    @BeforeEach
+    void open() throws Exception {
+        manifest = new CollectionManifest("jdbc:sqlite:" + dir.resolve("manifest.sqlite"), "faces");
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        manifest.close();
+    }
+
+    @Test
+    void indexesOnlyWhatChangedAndRemovesWhatIsGone() throws Exception {
+        manifest.put("Photos/same.png", "e-same", Arrays.asList("face-same"));
+        manifest.put("Photos/changed.png", "e-old", Arrays.asList("face-old"));
+        manifest.put("Photos/gone.png", "e-gone", Arrays.asList("face-gone-1", "face-gone-2"));
+        manifest.put("Archive/kept.png", "e-kept", Arrays.asList("face-kept"));
+        // Two pages, to go through the paginator
+        s3.pages.add(Arrays.asList(object("Photos/same.png", "e-same"), object("Photos/changed.png", "e-new")));
+        s3.pages.add(Arrays.asList(object("Photos/new.png", "e-1"), object("Photos/notes.txt", "e-2")));
+
+        Collectionsaddforrekognition.Report report = sync();
+
+        assertEquals(2, report.getIndexed());
+        assertEquals(1, report.getRemoved());
+        assertEquals(0, report.getFailed());
+        assertEquals(new HashSet<>(Arrays.asList("Photos/changed.png", "Photos/new.png")),
+                new HashSet<>(rekognition.indexed));
+        // The changed photo's new faces are in before its old ones are deleted
+        assertTrue(rekognition.calls.indexOf("delete [face-old]")
+                > rekognition.calls.indexOf("index Photos/changed.png"), rekognition.calls.toString());
+        assertTrue(rekognition.calls.contains("delete [face-gone-1, face-gone-2]"), rekognition.calls.toString());
+
+        Map<String, CollectionManifest.Entry> entries = manifest.load();
+        assertEquals(new HashSet<>(Arrays.asList("Photos/same.png", "Photos/changed.png", "Photos/new.png",
+                "Archive/kept.png")), entries.keySet());
+        assertEquals("e-new", entries.get("Photos/changed.png").getEtag());
+        assertEquals(Arrays.asList("face-Photos/changed.png"), entries.get("Photos/changed.png").getFaceIds());
+        assertEquals("e-1", entries.get("Photos/new.png").getEtag());
+        assertEquals(Arrays.asList("face-same"), entries.get("Photos/same.png").getFaceIds());
+    }
+
+    @Test
+    void keepsBothFaceSetsUnderTheOldEtagWhenDeleteFails() throws Exception {
+        manifest.put("Photos/changed.png", "e-old", Arrays.asList("face-old"));
+        s3.pages.add(Arrays.asList(object("Photos/changed.png", "e-new")));
+        rekognition.failDeletes = true;
+
+        Collectionsaddforrekognition.Report report = sync();
+
+        assertEquals(1, report.getFailed());
+        CollectionManifest.Entry entry = manifest.load().get("Photos/changed.png");
+        assertEquals("e-old", entry.getEtag());
+        assertEquals(Arrays.asList("face-old", "face-Photos/changed.png"), entry.getFaceIds());
+
+        // The next sync indexes it again and deletes both sets
+        rekognition.failDeletes = false;
+        s3.pages.add(Arrays.asList(object("Photos/changed.png", "e-new")));
+        sync();
+        assertTrue(rekognition.calls.contains("delete [face-old, face-Photos/changed.png]"),
+                rekognition.calls.toString());
+        entry = manifest.load().get("Photos/changed.png");
+        assertEquals("e-new", entry.getEtag());
+        assertEquals(Arrays.asList("face-Photos/changed.png"), entry.getFaceIds());
+    }
+
+    @Test
+    void keepsRemovedObjectsWhoseFacesCouldNotBeDeleted() throws Exception {
+        manifest.put("Photos/gone.png", "e-gone", Arrays.asList("face-gone"));
+        s3.pages.add(Collections.emptyList());
+        rekognition.failDeletes = true;
+
+        Collectionsaddforrekognition.Report report = sync();
+
+        assertEquals(0, report.getRemoved());
+        assertEquals(1, report.getFailed());
+        assertTrue(manifest.load().containsKey("Photos/gone.png"));
+    }
+
+    @Test
+    void deletesFacesOfRemovedObjectsInBatches() throws Exception {
+        Set<String> faceIds = new HashSet<>();
+        for (int photo = 0; photo < 3; photo++) {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                ids.add("face-" + photo + "-" + i);
+            }
+            faceIds.addAll(ids);
+            manifest.put("Photos/gone-" + photo + ".png", "e", ids);
+        }
+        s3.pages.add(Collections.emptyList());
+
+        Collectionsaddforrekognition.Report report = sync();
+
+        assertEquals(3, report.getRemoved());
+        assertEquals(2, rekognition.deletes.size());
+        Set<String> deleted = new HashSet<>();
+        for (List<String> batch : rekognition.deletes) {
+            assertTrue(batch.size() <= 4096, "batch of " + batch.size());
+            deleted.addAll(batch);
+        }
+        assertEquals(faceIds, deleted);
+        assertTrue(manifest.load().isEmpty());
+    }
+
+    @Test
+    void skipsObjectsWhoseEtagIsUnchanged() throws Exception {
+        s3.pages.add(Arrays.asList(object("Photos/a.png", "e-a")));
+        sync();
+        s3.pages.add(Arrays.asList(object("Photos/a.png", "e-a")));
+
+        Collectionsaddforrekognition.Report report = sync();
+
+        assertEquals(0, report.getIndexed());
+        assertEquals(1, rekognition.indexed.size());
+        assertFalse(rekognition.calls.stream().anyMatch(call -> call.startsWith("delete")));
+    }
+
+    private Collectionsaddforrekognition.Report sync() throws Exception {
+        return new Collectionsaddforrekognition(s3, rekognition, new AdaptiveRateLimiter(1000, 1, 1000), 0, 1)
+                .sync("Photos/", manifest, 2);
+    }
+
+    private static S3Object object(String key, String etag) {
+        return S3Object.builder().key(key).eTag(etag).build();
+    }
+
+    // Hands out the queued pages for one listing, linked by continuation tokens
+    private static class FakeS3 implements S3Client {
+        final List<List<S3Object>> pages = new ArrayList<>();
+
+        @Override
+        public synchronized ListObjectsV2Response listObjectsV2(ListObjectsV2Request request) {
+            List<S3Object> page = pages.remove(0);
+            boolean more = request.continuationToken() == null && !pages.isEmpty();
+            return ListObjectsV2Response.builder()
+                    .contents(page)
+                    .isTruncated(more)
+                    .nextContinuationToken(more ? "next" : null)
+                    .build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "s3";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // Gives each indexed photo one face named after it, and logs every call in order
+    private static class FakeRekognition implements RekognitionClient {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        final List<String> indexed = Collections.synchronizedList(new ArrayList<>());
+        final List<List<String>> deletes = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean failDeletes;
+
+        @Override
+        public IndexFacesResponse indexFaces(IndexFacesRequest request) {
+            String key = request.image().s3Object().name();
+            calls.add("index " + key);
+            indexed.add(key);
+            return IndexFacesResponse.builder()
+                    .faceRecords(FaceRecord.builder().face(Face.builder().faceId("face-" + key).build()).build())
+                    .build();
+        }
+
+        @Override
+        public DeleteFacesResponse deleteFaces(DeleteFacesRequest request) {
+            calls.add("delete " + request.faceIds());
+            if (failDeletes) {
+                throw InvalidParameterException.builder().statusCode(400)
+                        .awsErrorDetails(AwsErrorDetails.builder().errorCode("InvalidParameterException").build())
+                        .build();
+            }
+            deletes.add(request.faceIds());
+            return DeleteFacesResponse.builder().deletedFaces(request.faceIds()).build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "rekognition";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
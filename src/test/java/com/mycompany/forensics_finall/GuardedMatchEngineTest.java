@@ -0,0 +1,161 @@
+package com.mycompany.forensics_finall;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.rekognition.model.InvalidParameterException;
+import software.amazon.awssdk.services.rekognition.model.ProvisionedThroughputExceededException;
+
+class GuardedMatchEngineTest {
+
+    private static final URI SERVER = URI.create("http://localhost/match");
+
+    @Test
+    void classifiesFailures() {
+        assertTrue(GuardedMatchEngine.isTransient(new MatchApiClient.StatusException(503, SERVER)));
+        assertTrue(GuardedMatchEngine.isTransient(new MatchApiClient.StatusException(429, SERVER)));
+        assertFalse(GuardedMatchEngine.isTransient(new MatchApiClient.StatusException(400, SERVER)));
+        assertFalse(GuardedMatchEngine.isTransient(new MatchApiClient.StatusException(404, SERVER)));
+        assertTrue(GuardedMatchEngine.isTransient(new HttpTimeoutException("slow")));
+        assertTrue(GuardedMatchEngine.isTransient(new ConnectException("refused")));
+        assertTrue(GuardedMatchEngine.isTransient(ProvisionedThroughputExceededException.builder().statusCode(400)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("ProvisionedThroughputExceededException").build())
+                .build()));
+        assertFalse(GuardedMatchEngine.isTransient(InvalidParameterException.builder().statusCode(400)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("InvalidParameterException").build())
+                .build()));
+        assertFalse(GuardedMatchEngine.isTransient(SdkClientException.create("no credentials")));
+        assertFalse(GuardedMatchEngine.isTransient(new NoSuchFileException("sketch.png")));
+        assertFalse(GuardedMatchEngine.isTransient(new IOException("unreadable image")));
+    }
+
+    @Test
+    void backoffStaysWithinItsCeiling() {
+        for (int attempt = 1; attempt <= 40; attempt++) {
+            long ceiling = Math.min(2000, 200L << Math.min(attempt - 1, 16));
+            for (int i = 0; i < 50; i++) {
+                long delay = GuardedMatchEngine.backoffMillis(attempt);
+                assertTrue(delay >= 0 && delay <= ceiling, "attempt " + attempt + " backed off " + delay + " ms");
+            }
+        }
+    }
+
+    @Test
+    void retriesTransientFailures() throws Exception {
+        FakeEngine engine = new FakeEngine();
+        engine.answers.add(() -> CompletableFuture.failedFuture(new MatchApiClient.StatusException(503, SERVER)));
+        engine.answers.add(() -> CompletableFuture.completedFuture(answer(engine)));
+        GuardedMatchEngine guarded = guarded(engine, 5000);
+
+        assertEquals(0, guarded.match(sketch(), 5, 0, f -> { }).get(5, TimeUnit.SECONDS).getSentBytes());
+        assertEquals(2, engine.calls);
+        assertEquals(CircuitBreaker.State.CLOSED, guarded.getBreaker().getState());
+    }
+
+    @Test
+    void doesNotRetryOrBlameTheBackendForLocalFailures() throws Exception {
+        FakeEngine engine = new FakeEngine();
+        engine.answers.add(() -> CompletableFuture.failedFuture(new NoSuchFileException("sketch.png")));
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 60000);
+        GuardedMatchEngine guarded = new GuardedMatchEngine(engine, breaker, 2, 0.99, 2, 100, 5000);
+
+        ExecutionException failed = assertThrows(ExecutionException.class,
+                () -> guarded.match(sketch(), 5, 0, f -> { }).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(NoSuchFileException.class, failed.getCause());
+        assertEquals(1, engine.calls);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void timeoutAbortsTheRequest() throws Exception {
+        FakeEngine engine = new FakeEngine();
+        CompletableFuture<MatchEngine.Answer> hanging = new CompletableFuture<>();
+        engine.answers.add(() -> hanging);
+        CircuitBreaker breaker = new CircuitBreaker("test", 5, 60000);
+        GuardedMatchEngine guarded = new GuardedMatchEngine(engine, breaker, 0, 0.99, 2, 50, 200);
+
+        ExecutionException failed = assertThrows(ExecutionException.class,
+                () -> guarded.match(sketch(), 5, 0, f -> { }).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(HttpTimeoutException.class, failed.getCause());
+        assertTrue(hanging.isCancelled());
+    }
+
+    @Test
+    void cancellingAbortsTheRequest() throws Exception {
+        FakeEngine engine = new FakeEngine();
+        CompletableFuture<MatchEngine.Answer> hanging = new CompletableFuture<>();
+        engine.answers.add(() -> hanging);
+        GuardedMatchEngine guarded = guarded(engine, 5000);
+
+        CompletableFuture<MatchEngine.Answer> result = guarded.match(sketch(), 5, 0, f -> { });
+        result.cancel(true);
+        assertTrue(hanging.isCancelled());
+        assertEquals(CircuitBreaker.State.CLOSED, guarded.getBreaker().getState());
+        // The breaker is not left waiting on the abandoned call
+        guarded.getBreaker().acquire();
+    }
+
+    private static GuardedMatchEngine guarded(MatchEngine engine, long timeoutMillis) {
+        return new GuardedMatchEngine(engine, new CircuitBreaker("test", 5, 60000), 2, 0.99, 2, 100, timeoutMillis);
+    }
+
+    private static MatchSketch sketch() {
+        return MatchSketch.of("sketch.png", new byte[0]);
+    }
+
+    private static MatchEngine.Answer answer(MatchEngine engine) {
+        return new MatchEngine.Answer(engine, Collections.emptyList(), null, "fake", 0);
+    }
+
+    // Hands out queued answers, one per call
+    private static class FakeEngine implements MatchEngine {
+        final Deque<Supplier<CompletableFuture<Answer>>> answers = new ArrayDeque<>();
+        int calls;
+
+        @Override
+        public String getName() {
+            return "fake";
+        }
+
+        @Override
+        public String backend() {
+            return "fake";
+        }
+
+        @Override
+        public CompletableFuture<String> galleryVersion() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public synchronized CompletableFuture<Answer> match(MatchSketch sketch, int topK, double minSimilarity,
+                DoubleConsumer progress) {
+            calls++;
+            return answers.remove().get();
+        }
+
+        @Override
+        public URI photoUri(String imageId) {
+            return URI.create("file:///" + imageId);
+        }
+    }
+}
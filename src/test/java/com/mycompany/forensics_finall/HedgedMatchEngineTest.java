@@ -0,0 +1,109 @@
+package com.mycompany.forensics_finall;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntToLongFunction;
+import org.junit.jupiter.api.Test;
+
+class HedgedMatchEngineTest {
+
+    @Test
+    void slowAnswerWinsWhenTheSecondaryFails() throws Exception {
+        FakeEngine primary = new FakeEngine("primary", n -> 100);
+        FakeEngine secondary = new FakeEngine("secondary", n -> -1);
+        HedgedMatchEngine hedged = new HedgedMatchEngine(primary, secondary, 95, 10);
+
+        MatchEngine.Answer answer = hedged.match(sketch(), 5, 0, f -> { }).get(5, TimeUnit.SECONDS);
+        assertEquals("primary", answer.getEngine().getName());
+        assertEquals(1, secondary.calls);
+    }
+
+    @Test
+    void fasterSecondaryWinsAndCancelsThePrimary() throws Exception {
+        FakeEngine primary = new FakeEngine("primary", n -> 2000);
+        FakeEngine secondary = new FakeEngine("secondary", n -> 10);
+        HedgedMatchEngine hedged = new HedgedMatchEngine(primary, secondary, 95, 50);
+
+        MatchEngine.Answer answer = hedged.match(sketch(), 5, 0, f -> { }).get(5, TimeUnit.SECONDS);
+        assertEquals("secondary", answer.getEngine().getName());
+        assertTrue(primary.last.isCancelled());
+    }
+
+    @Test
+    void hedgeDelayDoesNotDriftBelowTheSlowRequests() throws Exception {
+        // One request in five is slow: 150 ms while the delay is learned, then far slower, so each is hedged
+        FakeEngine primary = new FakeEngine("primary", n -> n % 5 != 4 ? 10 : n < 20 ? 150 : 1000);
+        FakeEngine secondary = new FakeEngine("secondary", n -> 10);
+        HedgedMatchEngine hedged = new HedgedMatchEngine(primary, secondary, 90, 1000);
+
+        for (int i = 0; i < 20; i++) {
+            hedged.match(sketch(), 5, 0, f -> { }).get(5, TimeUnit.SECONDS);
+        }
+        long learned = hedged.hedgeDelayMillis();
+        assertTrue(learned >= 150 && learned < 1000, "learned " + learned + " ms");
+
+        for (int i = 0; i < 50; i++) {
+            hedged.match(sketch(), 5, 0, f -> { }).get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(10, secondary.calls);
+        // Without the hedged requests' samples the p90 would fall to the fast requests' 10 ms
+        assertTrue(hedged.hedgeDelayMillis() >= learned, "drifted to " + hedged.hedgeDelayMillis() + " ms");
+    }
+
+    private static MatchSketch sketch() {
+        return MatchSketch.of("sketch.png", new byte[0]);
+    }
+
+    // Answers the nth request after the given number of milliseconds, or fails it at once if negative
+    private static class FakeEngine implements MatchEngine {
+        final String name;
+        final IntToLongFunction latency;
+        int calls;
+        CompletableFuture<Answer> last;
+
+        FakeEngine(String name, IntToLongFunction latency) {
+            this.name = name;
+            this.latency = latency;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String backend() {
+            return name;
+        }
+
+        @Override
+        public CompletableFuture<String> galleryVersion() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public synchronized CompletableFuture<Answer> match(MatchSketch sketch, int topK, double minSimilarity,
+                DoubleConsumer progress) {
+            long millis = latency.applyAsLong(calls++);
+            if (millis < 0) {
+                return CompletableFuture.failedFuture(new MatchApiClient.StatusException(503, photoUri("")));
+            }
+            CompletableFuture<Answer> answer = new CompletableFuture<>();
+            CompletableFuture.delayedExecutor(millis, TimeUnit.MILLISECONDS).execute(
+                    () -> answer.complete(new Answer(this, Collections.emptyList(), null, name, 0)));
+            last = answer;
+            return answer;
+        }
+
+        @Override
+        public URI photoUri(String imageId) {
+            return URI.create("file:///" + name + "/" + imageId);
+        }
+    }
+}
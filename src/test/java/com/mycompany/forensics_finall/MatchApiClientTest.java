@@ -0,0 +1,28 @@
+package com.mycompany.forensics_finall;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URI;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class MatchApiClientTest {
+
+    private final MatchApiClient client = new MatchApiClient(URI.create("http://localhost:5000/gallery/"),
+            Duration.ofSeconds(1), Duration.ofSeconds(1));
+
+    @Test
+    void servesPlainIdsUnderTheBaseUri() {
+        assertEquals(URI.create("http://localhost:5000/gallery/suspect_01.png"), client.photoUri("suspect_01.png"));
+    }
+
+    @Test
+    void encodesIdsThatAreNotValidInAUri() {
+        assertEquals(URI.create("http://localhost:5000/gallery/John%20Doe%20%231.png"),
+                client.photoUri("John Doe #1.png"));
+        assertEquals(URI.create("http://localhost:5000/gallery/case%3A12.png"), client.photoUri("case:12.png"));
+        assertEquals(URI.create("http://localhost:5000/gallery/a%2Fb%3Fc.png"), client.photoUri("a/b?c.png"));
+        assertEquals(URI.create("http://localhost:5000/gallery/Jos%C3%A9.png"), client.photoUri("José.png"));
+        assertEquals(URI.create("http://localhost:5000/gallery/%2E%2E"), client.photoUri(".."));
+    }
+}
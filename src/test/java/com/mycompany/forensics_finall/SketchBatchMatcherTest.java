@@ -0,0 +1,99 @@
+package com.mycompany.forensics_finall;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SketchBatchMatcherTest {
+
+    private final ExecutorService cpu = Executors.newFixedThreadPool(2);
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void shutDown() {
+        cpu.shutdown();
+    }
+
+    @Test
+    void unreadableSketchFailsAloneAndCheckpointKeepsTheRest() throws Exception {
+        Path first = Files.write(dir.resolve("a.png"), new byte[] { 1 });
+        Path missing = dir.resolve("b.png");
+        Path last = Files.write(dir.resolve("c.png"), new byte[] { 2 });
+        Path checkpoint = dir.resolve("results.csv.checkpoint");
+        Map<String, JSONObject> results = new LinkedHashMap<>();
+
+        SketchBatchMatcher.Report report = new SketchBatchMatcher(new SlowEngine(), 5, 0, 0, 10)
+                .matchAll(Arrays.asList(first, missing, last), checkpoint, 2, cpu, results);
+
+        assertEquals(2, report.getMatched());
+        assertEquals(1, report.getFailed());
+        assertTrue(results.get("b.png").getString("error").startsWith("Cannot read sketch"));
+        Map<String, JSONObject> done = SketchBatchMatcher.readCheckpoint(checkpoint);
+        assertEquals(new TreeSet<>(Arrays.asList("a.png", "c.png")), new TreeSet<>(done.keySet()));
+    }
+
+    @Test
+    void skipsSketchesAlreadyCheckpointed() throws Exception {
+        Path sketch = Files.write(dir.resolve("a.png"), new byte[] { 1 });
+        Path checkpoint = dir.resolve("results.csv.checkpoint");
+        SketchBatchMatcher batch = new SketchBatchMatcher(new SlowEngine(), 5, 0, 0, 10);
+        batch.matchAll(Collections.singletonList(sketch), checkpoint, 2, cpu, new LinkedHashMap<>());
+
+        SketchBatchMatcher.Report report = batch.matchAll(Collections.singletonList(sketch), checkpoint, 2, cpu,
+                new LinkedHashMap<>());
+        assertEquals(1, report.getSkipped());
+        assertEquals(0, report.getMatched());
+    }
+
+    // Answers after a while, so earlier sketches are still in flight when later ones are read
+    private static class SlowEngine implements MatchEngine {
+
+        @Override
+        public String getName() {
+            return "fake";
+        }
+
+        @Override
+        public String backend() {
+            return "fake";
+        }
+
+        @Override
+        public CompletableFuture<String> galleryVersion() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Answer> match(MatchSketch sketch, int topK, double minSimilarity,
+                DoubleConsumer progress) {
+            CompletableFuture<Answer> answer = new CompletableFuture<>();
+            CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS).execute(
+                    () -> answer.complete(new Answer(this, Collections.emptyList(), null, "fake", 0)));
+            return answer;
+        }
+
+        @Override
+        public URI photoUri(String imageId) {
+            return URI.create("file:///" + imageId);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.mycompany.forensics_finall;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SketchDescriptorTest {
+
+    private static final String MANIFEST = "{\"canvas\":{\"width\":600,\"height\":600},\"categories\":["
+            + "{\"id\":\"head\",\"pane\":\"face\",\"z\":0,\"elements\":["
+            + "{\"thumbnail\":\"head/1.png\",\"layers\":[{\"image\":\"head/1.png\",\"x\":0,\"y\":0}]},"
+            + "{\"thumbnail\":\"head/2.png\",\"layers\":[{\"image\":\"head/2.png\",\"x\":0,\"y\":0}]}]},"
+            + "{\"id\":\"eyes\",\"pane\":\"face\",\"z\":1,\"elements\":["
+            + "{\"thumbnail\":\"eyes/1.png\",\"layers\":[{\"image\":\"eyes/1.png\",\"x\":100,\"y\":150}]}]},"
+            + "{\"id\":\"hair\",\"pane\":\"face\",\"z\":2,\"elements\":["
+            + "{\"thumbnail\":\"hair/1.png\",\"layers\":[{\"image\":\"hair/1.png\",\"x\":0,\"y\":0}]}]}]}";
+
+    private final SketchManifest manifest = new SketchManifest(new JSONObject(MANIFEST));
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsSelectionsAndOffsets() throws IOException {
+        SketchState state = sketch();
+
+        SketchState decoded = SketchDescriptor.decode(SketchDescriptor.encode(state), manifest);
+
+        assertSameSketch(state, decoded);
+        assertNull(decoded.get(manifest.getCategory("hair")).getElement());
+    }
+
+    @Test
+    void roundTripsAnEmptySketch() throws IOException {
+        SketchState decoded = SketchDescriptor.decode(SketchDescriptor.encode(SketchState.empty(manifest)), manifest);
+        assertTrue(decoded.isEmpty());
+    }
+
+    @Test
+    void writesAndReadsFiles() throws IOException {
+        SketchState state = sketch();
+        Path first = dir.resolve("first" + SketchDescriptor.EXTENSION);
+        Path second = dir.resolve("second" + SketchDescriptor.EXTENSION);
+        SketchDescriptor.write(state, first);
+        SketchDescriptor.write(state, second);
+        // Overwriting a longer descriptor leaves no stale records behind
+        SketchDescriptor.write(SketchState.empty(manifest), second);
+        Files.write(dir.resolve("broken" + SketchDescriptor.EXTENSION), new byte[] { 1, 2, 3 });
+
+        assertSameSketch(state, SketchDescriptor.read(first, manifest));
+        Map<Path, SketchState> scanned = SketchDescriptor.scan(dir, manifest);
+        assertEquals(2, scanned.size());
+        assertTrue(scanned.get(second).isEmpty());
+    }
+
+    @Test
+    void rejectsTruncatedDescriptors() {
+        ByteBuffer encoded = SketchDescriptor.encode(sketch());
+        encoded.limit(encoded.limit() - 1);
+
+        IOException error = assertThrows(IOException.class, () -> SketchDescriptor.decode(encoded, manifest));
+        assertTrue(error.getMessage().contains("Truncated"), error.getMessage());
+    }
+
+    @Test
+    void rejectsRecordsLargerThanTheFile() throws IOException {
+        ByteBuffer encoded = SketchDescriptor.encode(sketch());
+        // Record size field, just past the magic and version
+        encoded.putShort(6, (short) 0x7fff);
+        assertThrows(IOException.class, () -> SketchDescriptor.decode(encoded.duplicate(), manifest));
+
+        Path file = dir.resolve("oversized" + SketchDescriptor.EXTENSION);
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        Files.write(file, bytes);
+        IOException error = assertThrows(IOException.class, () -> SketchDescriptor.read(file, manifest));
+        assertTrue(error.getMessage().contains(file.toString()), error.getMessage());
+        assertTrue(SketchDescriptor.scan(dir, manifest).isEmpty());
+    }
+
+    @Test
+    void rejectsOtherFiles() {
+        ByteBuffer encoded = SketchDescriptor.encode(sketch());
+        encoded.putInt(0, 0x89504e47);
+
+        assertThrows(IOException.class, () -> SketchDescriptor.decode(encoded, manifest));
+    }
+
+    private SketchState sketch() {
+        SketchManifest.Category head = manifest.getCategory("head");
+        SketchManifest.Category eyes = manifest.getCategory("eyes");
+        return SketchState.empty(manifest)
+                .with(head, new SketchState.Selection(head.getElement(1), 0, 0))
+                .with(eyes, new SketchState.Selection(eyes.getElement(0), -12.5, 40.25));
+    }
+
+    private void assertSameSketch(SketchState expected, SketchState actual) {
+        for (SketchManifest.Category category : manifest.getCategories()) {
+            SketchState.Selection want = expected.get(category);
+            SketchState.Selection got = actual.get(category);
+            assertSame(want.getElement(), got.getElement(), category.getId());
+            assertEquals(want.getTranslateX(), got.getTranslateX(), category.getId());
+            assertEquals(want.getTranslateY(), got.getTranslateY(), category.getId());
+        }
+    }
+}